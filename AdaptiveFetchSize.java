@@ -0,0 +1,107 @@
+package com.example.executor;
+
+import com.example.config.DatabaseConfig;
+
+/**
+ * Per-partition JDBC fetch-size controller.
+ * <p>
+ * Starts with a small fetch size so the first rows arrive quickly, then after
+ * each batch of {@code fetchSize} rows compares the time spent waiting in
+ * {@code ResultSet.next()} per row with the previous batch. While larger
+ * batches keep lowering the per-row wait, the fetch size doubles; it never
+ * grows beyond what fits in the per-partition memory ceiling at the measured
+ * row width, and shrinks again if rows get wider. Not thread-safe - one
+ * instance per partition.
+ */
+public class AdaptiveFetchSize {
+
+    /** Per-row wait must improve by at least this factor to keep growing. */
+    private static final double IMPROVEMENT = 0.95;
+
+    private final int initial;
+    private final int max;
+    private final long memoryCeilingBytes;
+
+    private int current;
+    private int peak;
+    private boolean growing = true;
+    private double previousNanosPerRow = Double.MAX_VALUE;
+
+    private int batchRows;
+    private long batchWaitNanos;
+    private long batchBytes;
+    private long totalBytes;
+    private long totalRows;
+
+    public AdaptiveFetchSize(int initial, int max, long memoryCeilingBytes) {
+        this.initial = Math.max(1, initial);
+        this.max = Math.max(this.initial, max);
+        this.memoryCeilingBytes = memoryCeilingBytes;
+        this.current = this.initial;
+        this.peak = this.initial;
+    }
+
+    /**
+     * Controller configured from {@code executor.fetch-size.*}, or null when
+     * adaptive fetch sizing is disabled and the static fetch size applies.
+     */
+    public static AdaptiveFetchSize fromConfig() {
+        if (!Boolean.parseBoolean(DatabaseConfig.getProperty("executor.fetch-size.adaptive", "false").trim())) {
+            return null;
+        }
+        return new AdaptiveFetchSize(
+            DatabaseConfig.getIntProperty("executor.fetch-size.initial", 100),
+            DatabaseConfig.getIntProperty("executor.fetch-size.max", 10_000),
+            DatabaseConfig.getIntProperty("executor.fetch-size.memory-ceiling-kb", 16_384) * 1024L);
+    }
+
+    public int current() {
+        return current;
+    }
+
+    /**
+     * Record one row: the nanoseconds spent in {@code next()} for it and its
+     * estimated size. Returns the fetch size to use from now on, which differs
+     * from {@link #current()} only at batch boundaries.
+     */
+    public int onRow(long waitNanos, long rowBytes) {
+        batchRows++;
+        batchWaitNanos += waitNanos;
+        batchBytes += rowBytes;
+        if (batchRows < current) {
+            return current;
+        }
+
+        totalRows += batchRows;
+        totalBytes += batchBytes;
+        double nanosPerRow = (double) batchWaitNanos / batchRows;
+        long avgRowBytes = Math.max(1, totalBytes / totalRows);
+        int memoryLimit = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryCeilingBytes / avgRowBytes));
+        int limit = Math.min(max, memoryLimit);
+
+        if (growing && nanosPerRow < previousNanosPerRow * IMPROVEMENT && current < limit) {
+            current = (int) Math.min(limit, current * 2L);
+        } else {
+            growing = false;
+            current = Math.min(current, limit);
+        }
+        peak = Math.max(peak, current);
+        previousNanosPerRow = nanosPerRow;
+
+        batchRows = 0;
+        batchWaitNanos = 0;
+        batchBytes = 0;
+        return current;
+    }
+
+    /**
+     * Summary for the run report, e.g. {@code 100->3200 (peak 3200, ~412 B/row)}.
+     */
+    @Override
+    public String toString() {
+        long rows = totalRows + batchRows;
+        long bytes = totalBytes + batchBytes;
+        return initial + "->" + current + " (peak " + peak
+            + (rows > 0 ? ", ~" + bytes / rows + " B/row)" : ")");
+    }
+}
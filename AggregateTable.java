@@ -0,0 +1,261 @@
+package com.example.executor;
+
+import com.example.model.ResultData;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Partial aggregates of one partition, or the merged result of a run.
+ * <p>
+ * An open-addressing hash table from primitive group key to count, sum and
+ * earliest/latest {@code created_date}, kept in parallel arrays. Rows are
+ * folded in as they are fetched, so memory grows with the number of groups
+ * rather than rows. Like other per-partition sinks it is fed by one thread;
+ * partitions are combined with {@link #mergeAll(List)}.
+ */
+public class AggregateTable implements ResultSink {
+
+    /** Earliest/latest date of a group without any non-null {@code created_date}. */
+    public static final long NO_DATE = ColumnarResultBuffer.NULL_TIME;
+
+    private final Aggregation aggregation;
+    private long[] keys;
+    private boolean[] used;
+    private long[] counts;
+    private long[] sums;
+    private long[] earliest;
+    private long[] latest;
+    private int size;
+
+    public AggregateTable(Aggregation aggregation) {
+        this(aggregation, 64);
+    }
+
+    private AggregateTable(Aggregation aggregation, int capacity) {
+        this.aggregation = aggregation;
+        allocate(capacity);
+    }
+
+    @Override
+    public void accept(ResultData row) {
+        int slot = slot(aggregation.keyOf(row));
+        counts[slot]++;
+        sums[slot] += aggregation.valueOf(row);
+        if (row.getCreatedDate() != null) {
+            long created = row.getCreatedDate().getTime();
+            if (earliest[slot] == NO_DATE || created < earliest[slot]) {
+                earliest[slot] = created;
+            }
+            if (latest[slot] == NO_DATE || created > latest[slot]) {
+                latest[slot] = created;
+            }
+        }
+    }
+
+    /**
+     * Drop all groups folded in so far.
+     */
+    @Override
+    public boolean discard(Partition partition) {
+        allocate(64);
+        return true;
+    }
+
+    /**
+     * Merge all tables with a fork-join tree of pairwise merges. The inputs
+     * are consumed; the result is one of them.
+     */
+    public static AggregateTable mergeAll(List<AggregateTable> tables) {
+        if (tables.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to merge");
+        }
+        return ForkJoinPool.commonPool().invoke(new MergeTask(tables, 0, tables.size()));
+    }
+
+    /**
+     * Fold another table's groups into this one.
+     */
+    void merge(AggregateTable other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (!other.used[i]) {
+                continue;
+            }
+            int slot = slot(other.keys[i]);
+            counts[slot] += other.counts[i];
+            sums[slot] += other.sums[i];
+            if (other.earliest[i] != NO_DATE && (earliest[slot] == NO_DATE || other.earliest[i] < earliest[slot])) {
+                earliest[slot] = other.earliest[i];
+            }
+            if (other.latest[i] != NO_DATE && (latest[slot] == NO_DATE || other.latest[i] > latest[slot])) {
+                latest[slot] = other.latest[i];
+            }
+        }
+    }
+
+    public Aggregation getAggregation() {
+        return aggregation;
+    }
+
+    /** Number of groups. */
+    public int size() {
+        return size;
+    }
+
+    /** All group keys in ascending order. */
+    public long[] keys() {
+        long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                result[n++] = keys[i];
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /** Rows in the group, 0 if absent. */
+    public long count(long key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    /** Sum of the aggregation's value in the group, 0 if absent. */
+    public long sum(long key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : sums[slot];
+    }
+
+    /** Earliest {@code created_date} in the group as epoch millis, or {@link #NO_DATE}. */
+    public long earliestCreated(long key) {
+        int slot = find(key);
+        return slot < 0 ? NO_DATE : earliest[slot];
+    }
+
+    /** Latest {@code created_date} in the group as epoch millis, or {@link #NO_DATE}. */
+    public long latestCreated(long key) {
+        int slot = find(key);
+        return slot < 0 ? NO_DATE : latest[slot];
+    }
+
+    /** Total rows over all groups. */
+    public long totalCount() {
+        long total = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Slot of {@code key}, inserting an empty group if needed.
+     */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        if (size >= keys.length >> 1) {
+            grow();
+            return slot(key);
+        }
+        used[i] = true;
+        keys[i] = key;
+        earliest[i] = NO_DATE;
+        latest[i] = NO_DATE;
+        size++;
+        return i;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        long[] oldCounts = counts;
+        long[] oldSums = sums;
+        long[] oldEarliest = earliest;
+        long[] oldLatest = latest;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slot(oldKeys[i]);
+                counts[slot] = oldCounts[i];
+                sums[slot] = oldSums[i];
+                earliest[slot] = oldEarliest[i];
+                latest[slot] = oldLatest[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        used = new boolean[capacity];
+        counts = new long[capacity];
+        sums = new long[capacity];
+        earliest = new long[capacity];
+        latest = new long[capacity];
+        size = 0;
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Merges {@code tables[from, to)} by merging both halves in parallel and
+     * then the smaller result into the larger.
+     */
+    private static class MergeTask extends RecursiveTask<AggregateTable> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<AggregateTable> tables;
+        private final int from;
+        private final int to;
+
+        MergeTask(List<AggregateTable> tables, int from, int to) {
+            this.tables = tables;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected AggregateTable compute() {
+            if (to - from == 1) {
+                return tables.get(from);
+            }
+            int mid = (from + to) >>> 1;
+            MergeTask left = new MergeTask(tables, from, mid);
+            left.fork();
+            AggregateTable right = new MergeTask(tables, mid, to).compute();
+            AggregateTable merged = left.join();
+            if (merged.size < right.size) {
+                AggregateTable swap = merged;
+                merged = right;
+                right = swap;
+            }
+            merged.merge(right);
+            return merged;
+        }
+    }
+}
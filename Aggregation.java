@@ -0,0 +1,87 @@
+package com.example.executor;
+
+import com.example.model.ResultData;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * What {@link ParallelQueryExecutor#executeAggregate(Aggregation)} computes:
+ * a primitive group key per row and an optional value to sum. Every group
+ * also gets a row count and the earliest and latest {@code created_date}.
+ * <p>
+ * Keys combining two ints are packed with {@link #key(int, int)} and taken
+ * apart again with {@link #high(long)} and {@link #low(long)}.
+ */
+public final class Aggregation {
+
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    private final String name;
+    private final ToLongFunction<ResultData> key;
+    private final ToLongFunction<ResultData> value;
+
+    private Aggregation(String name, ToLongFunction<ResultData> key, ToLongFunction<ResultData> value) {
+        this.name = name;
+        this.key = key;
+        this.value = value;
+    }
+
+    /**
+     * Group by {@code key}, summing {@code value} (may be null for counts only).
+     */
+    public static Aggregation of(String name, ToLongFunction<ResultData> key, ToLongFunction<ResultData> value) {
+        return new Aggregation(name, key, value);
+    }
+
+    /** One group per grade. */
+    public static Aggregation byGrade() {
+        return new Aggregation("grade", ResultData::getGrade, null);
+    }
+
+    /**
+     * One group per grade and UTC day of {@code created_date}; the low half of
+     * the key is the epoch day, or {@code Integer.MIN_VALUE} for a null date.
+     */
+    public static Aggregation byGradeAndDay() {
+        return byGradeAnd("grade, day", row -> row.getCreatedDate() == null
+            ? Integer.MIN_VALUE
+            : (int) Math.floorDiv(row.getCreatedDate().getTime(), MILLIS_PER_DAY));
+    }
+
+    /** One group per grade and value of another int column. */
+    public static Aggregation byGradeAnd(String name, ToIntFunction<ResultData> column) {
+        return new Aggregation(name, row -> key(row.getGrade(), column.applyAsInt(row)), null);
+    }
+
+    /** This aggregation, additionally summing {@code value} per group. */
+    public Aggregation summing(ToLongFunction<ResultData> sumOf) {
+        return new Aggregation(name, key, sumOf);
+    }
+
+    public static long key(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    public static int high(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int low(long key) {
+        return (int) key;
+    }
+
+    long keyOf(ResultData row) {
+        return key.applyAsLong(row);
+    }
+
+    long valueOf(ResultData row) {
+        return value == null ? 0 : value.applyAsLong(row);
+    }
+
+    @Override
+    public String toString() {
+        return "aggregation by " + name;
+    }
+}
@@ -1,14 +1,31 @@
 package com.example;
 
 import com.example.config.DatabaseConfig;
+import com.example.executor.AggregateTable;
+import com.example.executor.Aggregation;
+import com.example.executor.ExtractJob;
 import com.example.executor.ParallelQueryExecutor;
+import com.example.executor.Partitioner;
+import com.example.executor.Reconciler;
 import com.example.model.ResultData;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Main application entry point.
  * Run this class to test the parallel query executor.
+ * Pass {@code --compare-modes} to time the fixed pool against virtual threads,
+ * {@code --jobs} to run the jobs configured in {@code executor.jobs},
+ * {@code --aggregate} to print row counts and date ranges per grade, or
+ * {@code --reconcile} to compare the configured database with the one in
+ * {@code reconcile.db.*}.
  */
 public class App {
     
@@ -24,12 +41,34 @@ public class App {
             // Test database connection first
             testConnection();
             
-            // Run parallel queries
-            ParallelQueryExecutor executor = new ParallelQueryExecutor();
-            List<ResultData> results = executor.executeParallel();
+            if (args.length > 0 && "--compare-modes".equals(args[0])) {
+                compareExecutionModes();
+                return;
+            }
+            if (args.length > 0 && "--jobs".equals(args[0])) {
+                try (ParallelQueryExecutor executor = new ParallelQueryExecutor()) {
+                    executor.executeJobs(ExtractJob.fromConfig());
+                }
+                return;
+            }
+            if (args.length > 0 && "--aggregate".equals(args[0])) {
+                try (ParallelQueryExecutor executor = new ParallelQueryExecutor()) {
+                    printAggregates(executor.executeAggregate(Aggregation.byGrade()));
+                }
+                return;
+            }
+            if (args.length > 0 && "--reconcile".equals(args[0])) {
+                reconcile();
+                return;
+            }
             
-            // Print sample results
-            printSampleResults(results);
+            // Run parallel queries
+            try (ParallelQueryExecutor executor = new ParallelQueryExecutor()) {
+                List<ResultData> results = executor.executeParallel();
+                
+                // Print sample results
+                printSampleResults(results);
+            }
             
         } catch (Exception e) {
             System.err.println("\n*** ERROR ***");
@@ -47,6 +86,7 @@ public class App {
         System.out.println("  DB URL: " + DatabaseConfig.getProperty("db.url", "not set"));
         System.out.println("  DB User: " + DatabaseConfig.getProperty("db.username", "not set"));
         System.out.println("  Thread Pool: " + DatabaseConfig.getIntProperty("executor.thread-pool-size", 4));
+        System.out.println("  Mode: " + DatabaseConfig.getProperty("executor.mode", "fixed"));
         System.out.println("  Fetch Size: " + DatabaseConfig.getIntProperty("executor.fetch-size", 1000));
         System.out.println("  Grades: " + DatabaseConfig.getProperty("query.grades", "4,5,7,11,12,13"));
         System.out.println();
@@ -64,6 +104,45 @@ public class App {
         System.out.println("  Connection test: SUCCESS\n");
     }
     
+    /**
+     * Run the same streaming extract in each execution mode and print the timings.
+     * Rows are only counted, so the comparison measures fetch time rather than heap.
+     * An untimed warm-up run fills the database cache first, and the modes then run
+     * twice in alternating order (fixed, virtual, virtual, fixed) so neither one
+     * always runs first; the reported time is the average of its two runs.
+     */
+    private static void compareExecutionModes() throws Exception {
+        ParallelQueryExecutor.ExecutionMode[] modes = ParallelQueryExecutor.ExecutionMode.values();
+        System.out.println("\n--- Warm-up: " + modes[0] + " ---");
+        System.out.printf("%s: %d rows (not timed)%n", modes[0], countRows(modes[0]));
+        
+        long[] elapsed = new long[modes.length];
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < modes.length; i++) {
+                ParallelQueryExecutor.ExecutionMode mode = modes[round == 0 ? i : modes.length - 1 - i];
+                System.out.println("\n--- Mode: " + mode + " (round " + (round + 1) + ") ---");
+                long start = System.currentTimeMillis();
+                long rows = countRows(mode);
+                long millis = System.currentTimeMillis() - start;
+                elapsed[mode.ordinal()] += millis;
+                System.out.printf("%s: %d rows in %d ms%n", mode, rows, millis);
+            }
+        }
+        
+        System.out.println("\n--- Mode comparison (average of 2 runs) ---");
+        for (ParallelQueryExecutor.ExecutionMode mode : modes) {
+            System.out.printf("  %-8s %8d ms%n", mode, elapsed[mode.ordinal()] / 2);
+        }
+    }
+    
+    private static long countRows(ParallelQueryExecutor.ExecutionMode mode) throws Exception {
+        LongAdder rows = new LongAdder();
+        try (ParallelQueryExecutor executor = new ParallelQueryExecutor(Partitioner.fromConfig(), mode)) {
+            executor.executeStreaming(row -> rows.increment());
+        }
+        return rows.sum();
+    }
+    
     private static void printSampleResults(List<ResultData> results) {
         System.out.println("\n--- Sample Results (first 10) ---");
         int count = 0;
@@ -76,4 +155,37 @@ public class App {
             System.out.println("  ... and " + (results.size() - 10) + " more records");
         }
     }
+    
+    /**
+     * Compare {@code db.*} (legacy) with {@code reconcile.db.*} (modern) and
+     * write the differing keys to {@code executor.reconcile.output}.
+     */
+    private static void reconcile() throws Exception {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(DatabaseConfig.getProperty("reconcile.db.url", "").trim());
+        config.setUsername(DatabaseConfig.getProperty("reconcile.db.username", "").trim());
+        config.setPassword(DatabaseConfig.getProperty("reconcile.db.password", ""));
+        config.setMaximumPoolSize(DatabaseConfig.getIntProperty("executor.reconcile.threads", 4));
+        Path output = Path.of(DatabaseConfig.getProperty("executor.reconcile.output", "reconcile-differences.csv").trim());
+        try (HikariDataSource modern = new HikariDataSource(config);
+             BufferedWriter out = Files.newBufferedWriter(output)) {
+            out.write("type,key\n");
+            Reconciler.Summary summary = Reconciler.fromConfig(DatabaseConfig.getDataSource(), modern)
+                .reconcile((type, key) -> out.write(type + "," + key + "\n"));
+            System.out.println("\n--- Reconciliation ---");
+            System.out.println("  " + summary);
+            System.out.println("  Differences written to " + output);
+        }
+    }
+    
+    private static void printAggregates(AggregateTable table) {
+        System.out.println("\n--- Rows per grade ---");
+        for (long grade : table.keys()) {
+            long earliest = table.earliestCreated(grade);
+            long latest = table.latestCreated(grade);
+            System.out.printf("  Grade %d: %d records, created %s .. %s%n", grade, table.count(grade),
+                earliest == AggregateTable.NO_DATE ? "-" : Instant.ofEpochMilli(earliest),
+                latest == AggregateTable.NO_DATE ? "-" : Instant.ofEpochMilli(latest));
+        }
+    }
 }
@@ -0,0 +1,305 @@
+package com.example.executor;
+
+import com.example.model.ResultData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+/**
+ * Reads extract files written by {@link ColumnarExtractWriter}.
+ * <p>
+ * Only the requested columns are decoded; the others are skipped using the
+ * per-column lengths in each block header and are left at their defaults
+ * (0 or null) in the returned rows. Every block is verified against its
+ * checksum before decoding.
+ */
+public class ColumnarExtractReader implements AutoCloseable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final List<BlockInfo> blocks = new ArrayList<>();
+
+    public ColumnarExtractReader(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            readHeader();
+            readFooter();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Block index with per-column statistics, e.g. to skip blocks whose
+     * {@code id} range cannot match.
+     */
+    public List<BlockInfo> getBlocks() {
+        return Collections.unmodifiableList(blocks);
+    }
+
+    public long getRowCount() {
+        long rows = 0;
+        for (BlockInfo block : blocks) {
+            rows += block.rows;
+        }
+        return rows;
+    }
+
+    /**
+     * Iterate all rows, decoding only the named columns (all when none given).
+     */
+    public Iterable<ResultData> read(String... columns) {
+        return read(blocks, columns);
+    }
+
+    /**
+     * Iterate the rows of selected blocks, decoding only the named columns.
+     */
+    public Iterable<ResultData> read(List<BlockInfo> selected, String... columns) {
+        boolean[] projection = projection(columns);
+        return () -> new Iterator<>() {
+            private final Iterator<BlockInfo> remaining = selected.iterator();
+            private Iterator<ResultData> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && remaining.hasNext()) {
+                    try {
+                        current = decodeBlock(remaining.next(), projection).iterator();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public ResultData next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean[] projection(String[] columns) {
+        boolean[] projection = new boolean[ColumnarExtractWriter.COLUMN_NAMES.length];
+        if (columns == null || columns.length == 0) {
+            Arrays.fill(projection, true);
+            return projection;
+        }
+        for (String column : columns) {
+            int index = Arrays.asList(ColumnarExtractWriter.COLUMN_NAMES).indexOf(column.toLowerCase());
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown column: " + column);
+            }
+            projection[index] = true;
+        }
+        return projection;
+    }
+
+    private List<ResultData> decodeBlock(BlockInfo block, boolean[] projection) throws IOException {
+        ByteBuffer in = readFully(block.offset, block.length);
+        CRC32 crc = new CRC32();
+        crc.update(in.array(), 0, block.length - 8);
+        if (crc.getValue() != in.getLong(block.length - 8)) {
+            throw new IOException("Checksum mismatch in block at offset " + block.offset + " of " + file);
+        }
+
+        int rows = in.getInt();
+        int[] lengths = new int[ColumnarExtractWriter.COLUMN_NAMES.length];
+        for (int c = 0; c < lengths.length; c++) {
+            lengths[c] = in.getInt();
+            in.getLong();
+            in.getLong();
+        }
+
+        List<ResultData> result = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            result.add(new ResultData());
+        }
+        for (int c = 0; c < lengths.length; c++) {
+            int end = in.position() + lengths[c];
+            if (projection[c]) {
+                decodeColumn(c, in, result);
+            }
+            in.position(end);
+        }
+        return result;
+    }
+
+    private static void decodeColumn(int column, ByteBuffer in, List<ResultData> rows) {
+        switch (column) {
+            case 0 -> rows.forEach(row -> row.setId(in.getLong()));
+            case 1 -> rows.forEach(row -> row.setGrade(in.getInt()));
+            case 2 -> rows.forEach(row -> {
+                long millis = in.getLong();
+                row.setCreatedDate(millis == ColumnarResultBuffer.NULL_TIME ? null : new Timestamp(millis));
+            });
+            default -> {
+                String[] dictionary = new String[in.getInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    byte[] utf8 = new byte[in.getInt()];
+                    in.get(utf8);
+                    dictionary[i] = new String(utf8, StandardCharsets.UTF_8);
+                }
+                for (ResultData row : rows) {
+                    int code = in.getInt();
+                    String value = code < 0 ? null : dictionary[code];
+                    if (column == 3) {
+                        row.setName(value);
+                    } else {
+                        row.setDescription(value);
+                    }
+                }
+            }
+        }
+    }
+
+    private void readHeader() throws IOException {
+        ByteBuffer in = readFully(0, 8);
+        checkMagic(in);
+        short version = in.getShort();
+        if (version != ColumnarExtractWriter.VERSION) {
+            throw new IOException("Unsupported extract version " + version + " in " + file);
+        }
+        int columns = Short.toUnsignedInt(in.getShort());
+        if (columns != ColumnarExtractWriter.COLUMN_NAMES.length) {
+            throw new IOException("Unexpected column count " + columns + " in " + file);
+        }
+        long offset = 8;
+        for (int c = 0; c < columns; c++) {
+            ByteBuffer column = readFully(offset, 3);
+            byte type = column.get();
+            byte[] name = new byte[Short.toUnsignedInt(column.getShort())];
+            readFully(offset + 3, name.length).get(name);
+            offset += 3 + name.length;
+            String expected = ColumnarExtractWriter.COLUMN_NAMES[c];
+            if (type != ColumnarExtractWriter.COLUMN_TYPES[c]
+                    || !expected.equals(new String(name, StandardCharsets.UTF_8))) {
+                throw new IOException("Unexpected column " + (c + 1) + " in " + file + ": "
+                    + new String(name, StandardCharsets.UTF_8) + " of type " + type + ", expected " + expected);
+            }
+        }
+    }
+
+    private void readFooter() throws IOException {
+        long size = channel.size();
+        ByteBuffer tail = readFully(size - 12, 12);
+        long footerOffset = tail.getLong();
+        checkMagic(tail);
+
+        ByteBuffer in = readFully(footerOffset, (int) (size - 12 - footerOffset));
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            long offset = in.getLong();
+            int length = in.getInt();
+            int rows = in.getInt();
+            byte[] id = new byte[Short.toUnsignedInt(in.getShort())];
+            in.get(id);
+            blocks.add(readBlockInfo(new String(id, StandardCharsets.UTF_8), offset, length, rows));
+        }
+    }
+
+    private BlockInfo readBlockInfo(String partitionId, long offset, int length, int rows) throws IOException {
+        int columns = ColumnarExtractWriter.COLUMN_NAMES.length;
+        ByteBuffer in = readFully(offset + 4, columns * 20);
+        long[] min = new long[columns];
+        long[] max = new long[columns];
+        for (int c = 0; c < columns; c++) {
+            in.getInt();
+            min[c] = in.getLong();
+            max[c] = in.getLong();
+        }
+        return new BlockInfo(partitionId, offset, length, rows, min, max);
+    }
+
+    private void checkMagic(ByteBuffer in) throws IOException {
+        byte[] magic = new byte[4];
+        in.get(magic);
+        if (!Arrays.equals(magic, ColumnarExtractWriter.MAGIC)) {
+            throw new IOException("Not a columnar extract file: " + file);
+        }
+    }
+
+    private ByteBuffer readFully(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + file);
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Location and statistics of one block. Only the numeric columns
+     * ({@code id}, {@code grade}, {@code created_date} as epoch millis) have
+     * min/max values.
+     */
+    public static class BlockInfo {
+        private final String partitionId;
+        private final long offset;
+        private final int length;
+        private final int rows;
+        private final long[] min;
+        private final long[] max;
+
+        BlockInfo(String partitionId, long offset, int length, int rows, long[] min, long[] max) {
+            this.partitionId = partitionId;
+            this.offset = offset;
+            this.length = length;
+            this.rows = rows;
+            this.min = min;
+            this.max = max;
+        }
+
+        public String getPartitionId() {
+            return partitionId;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public long getMin(String column) {
+            return min[numericColumn(column)];
+        }
+
+        public long getMax(String column) {
+            return max[numericColumn(column)];
+        }
+
+        private static int numericColumn(String column) {
+            int index = Arrays.asList(ColumnarExtractWriter.COLUMN_NAMES).indexOf(column.toLowerCase());
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown column: " + column);
+            }
+            if (ColumnarExtractWriter.COLUMN_TYPES[index] == ColumnarExtractWriter.TYPE_STRING) {
+                throw new IllegalArgumentException("No min/max statistics for string column " + column);
+            }
+            return index;
+        }
+    }
+}
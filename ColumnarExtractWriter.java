@@ -0,0 +1,271 @@
+package com.example.executor;
+
+import com.example.model.ResultData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Writes query results to a self-describing binary columnar extract file.
+ * <p>
+ * Layout:
+ * <pre>
+ *   header : magic "PQXF", u16 version, u16 column count, per column (u8 type, u16 name length, UTF-8 name)
+ *   blocks : one or more per partition, see below
+ *   footer : i32 block count, per block (i64 offset, i32 length, i32 rows, u16 id length, UTF-8 partition id),
+ *            i64 footer offset, magic "PQXF"
+ * </pre>
+ * A block holds up to {@code rowsPerBlock} rows of one partition:
+ * <pre>
+ *   i32 rows, per column (i32 byte length, i64 min, i64 max), column payloads, i64 CRC32 of the preceding bytes
+ * </pre>
+ * Numeric columns are stored as raw big-endian values; min/max exclude nulls.
+ * String columns are a dictionary (i32 size, then i32 length + UTF-8 bytes per
+ * entry) followed by one i32 code per row (-1 for null); they have no
+ * statistics and their min/max are written as 0.
+ * <p>
+ * Each partition encodes its blocks on its own fetch thread; only the final
+ * append to the file is serialized.
+ */
+public class ColumnarExtractWriter implements AutoCloseable {
+
+    static final byte[] MAGIC = {'P', 'Q', 'X', 'F'};
+    static final short VERSION = 1;
+
+    static final byte TYPE_LONG = 0;
+    static final byte TYPE_INT = 1;
+    static final byte TYPE_TIMESTAMP = 2;
+    static final byte TYPE_STRING = 3;
+
+    /** Columns in file order. */
+    static final String[] COLUMN_NAMES = {"id", "grade", "created_date", "name", "description"};
+    static final byte[] COLUMN_TYPES = {TYPE_LONG, TYPE_INT, TYPE_TIMESTAMP, TYPE_STRING, TYPE_STRING};
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int rowsPerBlock;
+    private final List<BlockEntry> blocks = new ArrayList<>();
+    private long position;
+    private long rowCount;
+
+    public ColumnarExtractWriter(Path file, int rowsPerBlock) throws IOException {
+        this.rowsPerBlock = Math.max(1, rowsPerBlock);
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(COLUMN_NAMES.length);
+        for (int i = 0; i < COLUMN_NAMES.length; i++) {
+            out.writeByte(COLUMN_TYPES[i]);
+            byte[] name = COLUMN_NAMES[i].getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+        }
+        write(bytes.toByteArray());
+    }
+
+    /**
+     * Sink that encodes one partition's rows into blocks.
+     *
+     * @throws IllegalArgumentException if the id does not fit its u16 length in the footer
+     */
+    public ResultSink newPartition(String partitionId) {
+        if (partitionId.getBytes(StandardCharsets.UTF_8).length > 0xFFFF) {
+            throw new IllegalArgumentException("Partition id longer than 65535 bytes: "
+                + partitionId.substring(0, 64) + "...");
+        }
+        return new PartitionEncoder(partitionId);
+    }
+
+    public synchronized long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Write the footer and close the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            long footerOffset = position;
+            out.writeInt(blocks.size());
+            for (BlockEntry block : blocks) {
+                out.writeLong(block.offset);
+                out.writeInt(block.length);
+                out.writeInt(block.rows);
+                byte[] id = block.partitionId.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(id.length);
+                out.write(id);
+            }
+            out.writeLong(footerOffset);
+            out.write(MAGIC);
+            write(bytes.toByteArray());
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Close the file without a footer and delete it, e.g. because a
+     * partition failed and the extract is incomplete.
+     */
+    public synchronized void abort() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private synchronized void append(String partitionId, byte[] block, int rows) throws IOException {
+        blocks.add(new BlockEntry(partitionId, position, block.length, rows));
+        rowCount += rows;
+        write(block);
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Encode a buffer of rows as one block.
+     */
+    static byte[] encodeBlock(ColumnarResultBuffer rows) throws IOException {
+        int n = rows.size();
+        byte[][] payloads = new byte[COLUMN_NAMES.length][];
+        long[] min = new long[COLUMN_NAMES.length];
+        long[] max = new long[COLUMN_NAMES.length];
+
+        ByteBuffer ids = ByteBuffer.allocate(8 * n);
+        ByteBuffer grades = ByteBuffer.allocate(4 * n);
+        ByteBuffer created = ByteBuffer.allocate(8 * n);
+        for (int c = 0; c < 3; c++) {
+            min[c] = Long.MAX_VALUE;
+            max[c] = Long.MIN_VALUE;
+        }
+        for (int row = 0; row < n; row++) {
+            long id = rows.getId(row);
+            int grade = rows.getGrade(row);
+            long millis = rows.getCreatedMillis(row);
+            ids.putLong(id);
+            grades.putInt(grade);
+            created.putLong(millis);
+            min[0] = Math.min(min[0], id);
+            max[0] = Math.max(max[0], id);
+            min[1] = Math.min(min[1], grade);
+            max[1] = Math.max(max[1], grade);
+            if (millis != ColumnarResultBuffer.NULL_TIME) {
+                min[2] = Math.min(min[2], millis);
+                max[2] = Math.max(max[2], millis);
+            }
+        }
+        payloads[0] = ids.array();
+        payloads[1] = grades.array();
+        payloads[2] = created.array();
+        payloads[3] = encodeStrings(rows.nameDictionary(), rows, true);
+        payloads[4] = encodeStrings(rows.descriptionDictionary(), rows, false);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(n);
+        for (int c = 0; c < COLUMN_NAMES.length; c++) {
+            out.writeInt(payloads[c].length);
+            out.writeLong(min[c]);
+            out.writeLong(max[c]);
+        }
+        for (byte[] payload : payloads) {
+            out.write(payload);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeStrings(List<String> dictionary, ColumnarResultBuffer rows, boolean nameColumn)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(dictionary.size());
+        for (String value : dictionary) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+        for (int row = 0; row < rows.size(); row++) {
+            out.writeInt(nameColumn ? rows.getNameCode(row) : rows.getDescriptionCode(row));
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Buffers one partition's rows and appends a block every {@code rowsPerBlock} rows.
+     */
+    private class PartitionEncoder implements ResultSink {
+        private final String partitionId;
+        private ColumnarResultBuffer buffer;
+
+        PartitionEncoder(String partitionId) {
+            this.partitionId = partitionId;
+            this.buffer = new ColumnarResultBuffer(Math.min(rowsPerBlock, 1 << 16));
+        }
+
+        @Override
+        public void accept(ResultData row) throws IOException {
+            buffer.accept(row);
+            if (buffer.size() >= rowsPerBlock) {
+                flush();
+            }
+        }
+
+        @Override
+        public void partitionComplete(Partition partition, int recordCount) throws IOException {
+            if (buffer.size() > 0) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            ExecutorEvents.SinkFlushEvent event = new ExecutorEvents.SinkFlushEvent();
+            event.begin();
+            byte[] block = encodeBlock(buffer);
+            append(partitionId, block, buffer.size());
+            ExecutorEvents.commitFlush(event, "columnar-extract", partitionId, buffer.size(), block.length);
+            buffer = new ColumnarResultBuffer(Math.min(rowsPerBlock, 1 << 16));
+        }
+    }
+
+    private static class BlockEntry {
+        final String partitionId;
+        final long offset;
+        final int length;
+        final int rows;
+
+        BlockEntry(String partitionId, long offset, int length, int rows) {
+            this.partitionId = partitionId;
+            this.offset = offset;
+            this.length = length;
+            this.rows = rows;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.executor;
+
+import com.example.model.ResultData;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column-oriented buffer for the rows of one partition.
+ * <p>
+ * {@code id}, {@code grade} and {@code created_date} (as epoch millis) are kept
+ * in primitive arrays; {@code name} and {@code description} are dictionary
+ * encoded, so each distinct string is held once and rows store an int code.
+ * This avoids a {@code ResultData}, a {@code Timestamp} and two string
+ * references per retained row. A column whose values are mostly distinct
+ * falls back to one entry per row, without the lookup map. Timestamps keep
+ * millisecond precision only: the sub-millisecond nanos of a
+ * {@code TIMESTAMP} column are lost.
+ * <p>
+ * Not thread-safe: use one buffer per partition.
+ */
+public class ColumnarResultBuffer implements ResultSink {
+
+    /** Marks a null {@code created_date}. */
+    static final long NULL_TIME = Long.MIN_VALUE;
+
+    private long[] ids;
+    private int[] grades;
+    private long[] createdMillis;
+    private int[] nameCodes;
+    private int[] descriptionCodes;
+    private int size;
+
+    private final StringDictionary names = new StringDictionary();
+    private final StringDictionary descriptions = new StringDictionary();
+
+    public ColumnarResultBuffer() {
+        this(1024);
+    }
+
+    public ColumnarResultBuffer(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        ids = new long[capacity];
+        grades = new int[capacity];
+        createdMillis = new long[capacity];
+        nameCodes = new int[capacity];
+        descriptionCodes = new int[capacity];
+    }
+
+    @Override
+    public void accept(ResultData row) {
+        add(row.getId(), row.getGrade(), row.getName(), row.getDescription(),
+            row.getCreatedDate() == null ? NULL_TIME : row.getCreatedDate().getTime());
+    }
+
+    /**
+     * Append one row from its column values.
+     */
+    public void add(long id, int grade, String name, String description, long createdMillis) {
+        if (size == ids.length) {
+            grow();
+        }
+        this.ids[size] = id;
+        this.grades[size] = grade;
+        this.createdMillis[size] = createdMillis;
+        this.nameCodes[size] = names.encode(name);
+        this.descriptionCodes[size] = descriptions.encode(description);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getId(int row) {
+        checkIndex(row);
+        return ids[row];
+    }
+
+    public int getGrade(int row) {
+        checkIndex(row);
+        return grades[row];
+    }
+
+    /** {@code created_date} as epoch millis, or {@link #NULL_TIME}. */
+    public long getCreatedMillis(int row) {
+        checkIndex(row);
+        return createdMillis[row];
+    }
+
+    public String getName(int row) {
+        checkIndex(row);
+        return names.decode(nameCodes[row]);
+    }
+
+    public String getDescription(int row) {
+        checkIndex(row);
+        return descriptions.decode(descriptionCodes[row]);
+    }
+
+    /**
+     * Materialize a row as a new {@link ResultData}.
+     */
+    public ResultData getRow(int row) {
+        ResultData data = new ResultData();
+        data.setId(getId(row));
+        data.setGrade(getGrade(row));
+        data.setName(getName(row));
+        data.setDescription(getDescription(row));
+        long millis = getCreatedMillis(row);
+        data.setCreatedDate(millis == NULL_TIME ? null : new Timestamp(millis));
+        return data;
+    }
+
+    /** Dictionary code of the row's {@code name}, -1 for null. */
+    int getNameCode(int row) {
+        checkIndex(row);
+        return nameCodes[row];
+    }
+
+    /** Dictionary code of the row's {@code description}, -1 for null. */
+    int getDescriptionCode(int row) {
+        checkIndex(row);
+        return descriptionCodes[row];
+    }
+
+    /** Values of the {@code name} dictionary, indexed by code. */
+    List<String> nameDictionary() {
+        return names.values;
+    }
+
+    /** Values of the {@code description} dictionary, indexed by code. */
+    List<String> descriptionDictionary() {
+        return descriptions.values;
+    }
+
+    /**
+     * Distinct values in the {@code name} column, or values held if the
+     * column fell back to one entry per row.
+     */
+    public int distinctNames() {
+        return names.size();
+    }
+
+    /**
+     * Distinct values in the {@code description} column, or values held if
+     * the column fell back to one entry per row.
+     */
+    public int distinctDescriptions() {
+        return descriptions.size();
+    }
+
+    /**
+     * Drop all rows and dictionary entries.
+     */
+    @Override
+    public boolean discard(Partition partition) {
+        size = 0;
+        names.clear();
+        descriptions.clear();
+        return true;
+    }
+
+    /**
+     * Release spare array capacity and the dictionaries' lookup maps once
+     * the partition is complete.
+     */
+    @Override
+    public void partitionComplete(Partition partition, int recordCount) {
+        trim();
+        names.seal();
+        descriptions.seal();
+    }
+
+    public void trim() {
+        if (size < ids.length) {
+            resize(size);
+        }
+    }
+
+    private void grow() {
+        resize(Math.max(16, ids.length + (ids.length >> 1)));
+    }
+
+    private void resize(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        grades = Arrays.copyOf(grades, capacity);
+        createdMillis = Arrays.copyOf(createdMillis, capacity);
+        nameCodes = Arrays.copyOf(nameCodes, capacity);
+        descriptionCodes = Arrays.copyOf(descriptionCodes, capacity);
+    }
+
+    private void checkIndex(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+    }
+
+    /**
+     * Maps each distinct string to a dense int code; -1 encodes null.
+     * <p>
+     * If more than half of the first {@link #SAMPLE_VALUES} values are
+     * distinct, the lookup map costs more than it saves: the dictionary then
+     * drops it and appends every further value as a new entry.
+     */
+    static class StringDictionary {
+        static final int SAMPLE_VALUES = 4096;
+
+        private Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private int encoded;
+        private boolean plain;
+
+        int encode(String value) {
+            if (value == null) {
+                return -1;
+            }
+            if (plain) {
+                values.add(value);
+                return values.size() - 1;
+            }
+            if (codes == null) {
+                codes = new HashMap<>();
+                for (int i = 0; i < values.size(); i++) {
+                    codes.put(values.get(i), i);
+                }
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            if (++encoded == SAMPLE_VALUES && values.size() > SAMPLE_VALUES / 2) {
+                plain = true;
+                codes = null;
+            }
+            return code;
+        }
+
+        /**
+         * Drop the lookup map; it is rebuilt if more values are encoded.
+         */
+        void seal() {
+            codes = null;
+        }
+
+        void clear() {
+            codes = new HashMap<>();
+            values.clear();
+            encoded = 0;
+            plain = false;
+        }
+
+        String decode(int code) {
+            return code < 0 ? null : values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+}
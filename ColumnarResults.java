@@ -0,0 +1,67 @@
+package com.example.executor;
+
+import com.example.model.ResultData;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only result of {@link ParallelQueryExecutor#executeColumnar()}: the
+ * per-partition {@link ColumnarResultBuffer}s in partition order.
+ * <p>
+ * It is also a {@code List<ResultData>}, so code written against
+ * {@code executeParallel()} keeps working; {@link #get(int)} builds a new
+ * {@code ResultData} on every call. Hot paths should use the column accessors
+ * of the individual buffers instead.
+ */
+public class ColumnarResults extends AbstractList<ResultData> implements RandomAccess {
+
+    private final List<ColumnarResultBuffer> buffers;
+    private final int[] offsets;
+    private final int size;
+
+    public ColumnarResults(List<ColumnarResultBuffer> buffers) {
+        this.buffers = List.copyOf(buffers);
+        this.offsets = new int[buffers.size()];
+        int total = 0;
+        for (int i = 0; i < buffers.size(); i++) {
+            offsets[i] = total;
+            total += buffers.get(i).size();
+        }
+        this.size = total;
+    }
+
+    /** Per-partition column buffers. */
+    public List<ColumnarResultBuffer> getBuffers() {
+        return buffers;
+    }
+
+    @Override
+    public ResultData get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        }
+        int buffer = bufferFor(index);
+        return buffers.get(buffer).getRow(index - offsets[buffer]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private int bufferFor(int index) {
+        int lo = 0;
+        int hi = offsets.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offsets[mid] <= index) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.executor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits how many partitions query the database at once.
+ * <p>
+ * In fixed mode it is a plain counting limit. In adaptive mode the limit
+ * follows additive-increase/multiplicative-decrease: every healthy sample
+ * adds {@code 1/limit} (about +1 per round of queries), while a sample whose
+ * per-row fetch latency exceeds the no-load baseline by the tolerance, or a
+ * connection wait over the threshold, multiplies the limit by the backoff
+ * factor - at most once per cooldown period, so one slow burst does not
+ * collapse it. Running partitions are never interrupted; a lower limit only
+ * delays the next ones.
+ */
+public class ConcurrencyLimiter {
+
+    private static final double BACKOFF = 0.7;
+    private static final long COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean adaptive;
+    private final int min;
+    private final int max;
+    private final double latencyTolerance;
+    private final long connectionWaitThresholdNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int peak;
+    private int backoffs;
+    private double baselineNanosPerRow = Double.MAX_VALUE;
+    private long lastBackoffNanos;
+
+    private ConcurrencyLimiter(boolean adaptive, int initial, int min, int max,
+                               double latencyTolerance, long connectionWaitThresholdMs) {
+        this.adaptive = adaptive;
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.limit = Math.max(this.min, Math.min(this.max, initial));
+        this.peak = (int) limit;
+        this.latencyTolerance = latencyTolerance;
+        this.connectionWaitThresholdNanos = TimeUnit.MILLISECONDS.toNanos(connectionWaitThresholdMs);
+        this.lastBackoffNanos = System.nanoTime() - COOLDOWN_NANOS;
+    }
+
+    /**
+     * A limiter that always allows {@code permits} concurrent partitions.
+     */
+    public static ConcurrencyLimiter fixed(int permits) {
+        return new ConcurrencyLimiter(false, permits, permits, permits, 0, 0);
+    }
+
+    /**
+     * An AIMD limiter starting at {@code initial} and moving between
+     * {@code min} and {@code max}.
+     *
+     * @param latencyTolerance          ratio of per-row latency to baseline that counts as degraded
+     * @param connectionWaitThresholdMs pool wait that counts as degraded
+     */
+    public static ConcurrencyLimiter adaptive(int initial, int min, int max,
+                                              double latencyTolerance, long connectionWaitThresholdMs) {
+        return new ConcurrencyLimiter(true, initial, min, max, latencyTolerance, connectionWaitThresholdMs);
+    }
+
+    public void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                permitAvailable.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Report how long a partition waited for a pooled connection.
+     */
+    public void onConnectionWait(long waitNanos) {
+        if (adaptive && waitNanos > connectionWaitThresholdNanos) {
+            lock.lock();
+            try {
+                backOff();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Report the average time spent waiting on the database per fetched row
+     * over a batch of rows.
+     */
+    public void onLatencySample(double nanosPerRow) {
+        if (!adaptive || nanosPerRow <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            // Drops to new lows at once, drifts up slowly so it tracks a changing workload
+            baselineNanosPerRow = nanosPerRow < baselineNanosPerRow
+                ? nanosPerRow
+                : baselineNanosPerRow + (nanosPerRow - baselineNanosPerRow) * 0.01;
+
+            if (nanosPerRow > baselineNanosPerRow * latencyTolerance) {
+                backOff();
+            } else if (inFlight >= (int) limit) {
+                // Only grow while the current limit is actually in use
+                limit = Math.min(max, limit + 1.0 / limit);
+                peak = Math.max(peak, (int) limit);
+                permitAvailable.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void backOff() {
+        long now = System.nanoTime();
+        if (now - lastBackoffNanos < COOLDOWN_NANOS || limit <= min) {
+            return;
+        }
+        lastBackoffNanos = now;
+        limit = Math.max(min, limit * BACKOFF);
+        backoffs++;
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Summary for the run report.
+     */
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return adaptive
+                ? String.format("adaptive concurrency limit %d (range %d-%d, peak %d, %d backoffs)",
+                    (int) limit, min, max, peak, backoffs)
+                : "fixed concurrency limit " + (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.executor;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces per-partition and whole-job deadlines on running statements.
+ * <p>
+ * Waiting on a {@code Future} with a timeout only stops the caller from
+ * waiting; the query keeps running and keeps its pooled connection. The
+ * watchdog instead calls {@link Statement#cancel()} when a deadline passes,
+ * which makes the fetch thread fail out of {@code executeQuery()} or
+ * {@code next()} and close its statement and connection.
+ * <p>
+ * A partition's deadline starts when it starts running, not when it is
+ * submitted, and never extends past the job deadline.
+ */
+public class DeadlineWatchdog implements AutoCloseable {
+
+    public enum Reason {
+        PARTITION_DEADLINE,
+        JOB_DEADLINE
+    }
+
+    private final long partitionTimeoutMs;
+    private final long jobDeadlineMs;
+    private final ScheduledExecutorService timer;
+    private final Set<Guard> active = ConcurrentHashMap.newKeySet();
+    private volatile boolean jobExpired;
+
+    /**
+     * @param partitionTimeoutMs per-partition limit, 0 for none
+     * @param jobTimeoutMs       limit for the whole run, 0 for none
+     */
+    public DeadlineWatchdog(long partitionTimeoutMs, long jobTimeoutMs) {
+        this.partitionTimeoutMs = partitionTimeoutMs;
+        this.jobDeadlineMs = jobTimeoutMs > 0 ? System.currentTimeMillis() + jobTimeoutMs : Long.MAX_VALUE;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "query-deadline-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (jobTimeoutMs > 0) {
+            timer.schedule(this::expireJob, jobTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Wall-clock time at which the job deadline passes, or {@code Long.MAX_VALUE}. */
+    public long getJobDeadlineMs() {
+        return jobDeadlineMs;
+    }
+
+    public boolean isJobExpired() {
+        return jobExpired;
+    }
+
+    /**
+     * Start guarding a statement of {@code partition}. Also sets its query
+     * timeout as a server-side backstop, in whole seconds rounded up.
+     *
+     * @throws PartitionCancelledException if the job deadline has already passed
+     */
+    public Guard start(Statement stmt, Partition partition) throws SQLException, PartitionCancelledException {
+        if (jobExpired) {
+            throw new PartitionCancelledException(partition, 0, Reason.JOB_DEADLINE, null);
+        }
+        long now = System.currentTimeMillis();
+        long deadline = Math.min(partitionTimeoutMs > 0 ? now + partitionTimeoutMs : Long.MAX_VALUE, jobDeadlineMs);
+        Reason reason = deadline == jobDeadlineMs ? Reason.JOB_DEADLINE : Reason.PARTITION_DEADLINE;
+
+        Guard guard = new Guard(stmt);
+        active.add(guard);
+        if (deadline != Long.MAX_VALUE) {
+            long remaining = Math.max(1, deadline - now);
+            stmt.setQueryTimeout((int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000));
+            guard.timeout = timer.schedule(() -> guard.cancel(reason), remaining, TimeUnit.MILLISECONDS);
+        }
+        return guard;
+    }
+
+    /**
+     * Cancel every running statement because the job deadline has passed.
+     * Partitions that have not started yet fail as soon as they try to.
+     */
+    public void expireJob() {
+        jobExpired = true;
+        for (Guard guard : active) {
+            guard.cancel(Reason.JOB_DEADLINE);
+        }
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * Guard of one running statement; close it once the statement is done.
+     */
+    public class Guard implements AutoCloseable {
+        private final Statement stmt;
+        private volatile ScheduledFuture<?> timeout;
+        private volatile Reason cancelled;
+
+        Guard(Statement stmt) {
+            this.stmt = stmt;
+        }
+
+        /** Why the statement was cancelled, or null if it was not. */
+        public Reason getCancelReason() {
+            return cancelled;
+        }
+
+        synchronized void cancel(Reason reason) {
+            if (cancelled != null || !active.contains(this)) {
+                return;
+            }
+            cancelled = reason;
+            try {
+                stmt.cancel();
+            } catch (SQLException e) {
+                System.err.println("Statement cancel failed: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            active.remove(this);
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.executor;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events of {@link ParallelQueryExecutor}.
+ * <p>
+ * Enable them with the {@code com.example.executor.*} event names in a JFR
+ * settings file or {@code -XX:StartFlightRecording}. When recording is off,
+ * {@code shouldCommit()} is false and the events cost one allocation that
+ * escape analysis usually removes. Stack traces are disabled because the
+ * events fire from the same few call sites.
+ */
+public final class ExecutorEvents {
+
+    private static final String CATEGORY = "Parallel Query Executor";
+
+    private ExecutorEvents() {
+    }
+
+    @Name("com.example.executor.Partition")
+    @Label("Partition")
+    @Description("Execution of one partition, from connection request to last row")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class PartitionEvent extends Event {
+        @Label("Partition")
+        public String partition;
+
+        @Label("Grade")
+        public int grade;
+
+        @Label("Chunk")
+        public int chunk;
+
+        @Label("Rows")
+        public long rows;
+
+        @Label("Connection Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        public long connectionWait;
+
+        @Label("Status")
+        public String status;
+    }
+
+    @Name("com.example.executor.FetchBatch")
+    @Label("Fetch Batch")
+    @Description("Rows of one JDBC fetch round trip and where their time went")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class FetchBatchEvent extends Event {
+        @Label("Partition")
+        public String partition;
+
+        @Label("Grade")
+        public int grade;
+
+        @Label("Chunk")
+        public int chunk;
+
+        @Label("Rows")
+        public int rows;
+
+        @Label("Fetch Size")
+        public int fetchSize;
+
+        @Label("JDBC Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        public long jdbcWait;
+
+        @Label("Sink Time")
+        @Timespan(Timespan.NANOSECONDS)
+        public long sinkTime;
+    }
+
+    @Name("com.example.executor.RowMapping")
+    @Label("Row Mapping")
+    @Description("Mapping of the rows of one fetch batch from ResultSet to objects")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class RowMappingEvent extends Event {
+        @Label("Partition")
+        public String partition;
+
+        @Label("Grade")
+        public int grade;
+
+        @Label("Chunk")
+        public int chunk;
+
+        @Label("Rows")
+        public int rows;
+
+        @Label("Mapping Time")
+        @Timespan(Timespan.NANOSECONDS)
+        public long mappingTime;
+    }
+
+    @Name("com.example.executor.SinkFlush")
+    @Label("Sink Flush")
+    @Description("A sink writing buffered rows to disk")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class SinkFlushEvent extends Event {
+        @Label("Sink")
+        public String sink;
+
+        @Label("Target")
+        public String target;
+
+        @Label("Rows")
+        public long rows;
+
+        @Label("Bytes")
+        @DataAmount(DataAmount.BYTES)
+        public long bytes;
+    }
+
+    /**
+     * Commit a sink flush that started with {@code event.begin()}.
+     */
+    static void commitFlush(SinkFlushEvent event, String sink, String target, long rows, long bytes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.sink = sink;
+            event.target = target;
+            event.rows = rows;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+}
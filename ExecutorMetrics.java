@@ -0,0 +1,412 @@
+package com.example.executor;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Structured metrics of {@link ParallelQueryExecutor} runs.
+ * <p>
+ * Every partition records its connection wait, time to first row, rows,
+ * estimated bytes, fetch round trips and how its time split between waiting
+ * on JDBC, mapping rows and running the sink. Totals are live through the
+ * {@link ExecutorMetricsMXBean} registered under
+ * {@code com.example.executor:type=ParallelQueryExecutor,name=<n>}, and each
+ * run is written as JSON to {@code executor.metrics.dir}. {@link #close()}
+ * unregisters the MXBean. Comparing JDBC
+ * wait with mapping and sink time shows whether a slow run was database-bound
+ * or client-bound.
+ * <p>
+ * Round trips are counted from the fetch size in effect: one for the
+ * execute, plus one whenever a full fetch-size batch has been consumed.
+ */
+public class ExecutorMetrics implements ExecutorMetricsMXBean, AutoCloseable {
+
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final HikariPoolMXBean pool;
+    private final Path outputDir;
+    private final List<PartitionMetrics> partitions = new ArrayList<>();
+
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder roundTrips = new LongAdder();
+    private final LongAdder jdbcWaitNanos = new LongAdder();
+    private final LongAdder mappingNanos = new LongAdder();
+    private final LongAdder sinkNanos = new LongAdder();
+    private final LongAdder connectionWaitNanos = new LongAdder();
+    private final AtomicLong maxConnectionWaitNanos = new AtomicLong();
+    private final LongAdder firstRowNanos = new LongAdder();
+    private final AtomicLong maxFirstRowNanos = new AtomicLong();
+    private final AtomicInteger firstRows = new AtomicInteger();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxThreadsAwaiting = new AtomicInteger();
+    private volatile long runStartNanos = System.nanoTime();
+    private volatile long runEndNanos;
+    private volatile ObjectName objectName;
+
+    public ExecutorMetrics(DataSource dataSource, Path outputDir) {
+        this.pool = hikariPool(dataSource);
+        this.outputDir = outputDir;
+        register();
+    }
+
+    /**
+     * Reset the totals for a new run.
+     */
+    public synchronized void startRun() {
+        partitions.clear();
+        for (LongAdder adder : new LongAdder[] {rows, bytes, roundTrips, jdbcWaitNanos, mappingNanos,
+                sinkNanos, connectionWaitNanos, firstRowNanos}) {
+            adder.reset();
+        }
+        maxConnectionWaitNanos.set(0);
+        maxFirstRowNanos.set(0);
+        for (AtomicInteger counter : new AtomicInteger[] {firstRows, connections, completed, failed, running,
+                maxThreadsAwaiting}) {
+            counter.set(0);
+        }
+        runStartNanos = System.nanoTime();
+        runEndNanos = 0;
+    }
+
+    /**
+     * Start recording one partition attempt on the calling fetch thread.
+     */
+    public PartitionMetrics startPartition(Partition partition) {
+        PartitionMetrics metrics = new PartitionMetrics(partition);
+        synchronized (this) {
+            partitions.add(metrics);
+        }
+        running.incrementAndGet();
+        if (pool != null) {
+            maxThreadsAwaiting.accumulateAndGet(pool.getThreadsAwaitingConnection(), Math::max);
+        }
+        return metrics;
+    }
+
+    /**
+     * Finish the run and write its JSON report.
+     *
+     * @return the report file, or null when no output directory is configured
+     */
+    public Path finishRun(String concurrency) {
+        runEndNanos = System.nanoTime();
+        if (outputDir == null) {
+            return null;
+        }
+        try {
+            Files.createDirectories(outputDir);
+            Path file = outputDir.resolve("run-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS")) + ".json");
+            Files.writeString(file, toJson(concurrency), StandardCharsets.UTF_8);
+            return file;
+        } catch (IOException e) {
+            System.err.println("Could not write metrics: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Metrics of one partition attempt. Updated by a single fetch thread.
+     */
+    public class PartitionMetrics {
+        private final Partition partition;
+        private final long startNanos = System.nanoTime();
+        private long connectionWait;
+        private long queryStart;
+        private long firstRow = -1;
+        private long rowCount;
+        private long byteCount;
+        private long trips;
+        private long rowsInTrip;
+        private long jdbcWait;
+        private long mapping;
+        private long sink;
+        private long elapsed;
+        private String status = "RUNNING";
+
+        PartitionMetrics(Partition partition) {
+            this.partition = partition;
+        }
+
+        public void onConnection(long waitNanos) {
+            connectionWait = waitNanos;
+            connectionWaitNanos.add(waitNanos);
+            maxConnectionWaitNanos.accumulateAndGet(waitNanos, Math::max);
+            connections.incrementAndGet();
+        }
+
+        /** Called right before {@code executeQuery()}; counts the first round trip. */
+        public void onExecute() {
+            queryStart = System.nanoTime();
+            trips = 1;
+        }
+
+        /**
+         * Record one row and where its time went.
+         *
+         * @return true if the row is the first of a new fetch round trip
+         */
+        public boolean onRow(long waitNanos, long mapNanos, long sinkNanos, long rowBytes, int fetchSize) {
+            boolean newTrip = false;
+            if (firstRow < 0) {
+                firstRow = System.nanoTime() - queryStart - mapNanos - sinkNanos;
+                firstRowNanos.add(firstRow);
+                maxFirstRowNanos.accumulateAndGet(firstRow, Math::max);
+                firstRows.incrementAndGet();
+            }
+            if (++rowsInTrip > fetchSize) {
+                trips++;
+                roundTrips.increment();
+                rowsInTrip = 1;
+                newTrip = true;
+            }
+            rowCount++;
+            byteCount += rowBytes;
+            jdbcWait += waitNanos;
+            mapping += mapNanos;
+            sink += sinkNanos;
+            rows.increment();
+            bytes.add(rowBytes);
+            jdbcWaitNanos.add(waitNanos);
+            mappingNanos.add(mapNanos);
+            ExecutorMetrics.this.sinkNanos.add(sinkNanos);
+            return newTrip;
+        }
+
+        /** Record the wait for the final, empty {@code next()} call. */
+        public void onEnd(long waitNanos) {
+            jdbcWait += waitNanos;
+            jdbcWaitNanos.add(waitNanos);
+        }
+
+        public void complete(boolean success) {
+            elapsed = System.nanoTime() - startNanos;
+            status = success ? "COMPLETED" : "FAILED";
+            roundTrips.add(trips > 0 ? 1 : 0);
+            running.decrementAndGet();
+            (success ? completed : failed).incrementAndGet();
+        }
+
+        private String toJson() {
+            double seconds = elapsed / 1e9;
+            return "{\"partition\":\"" + partition.getId() + "\",\"grade\":" + partition.getGrade()
+                + ",\"status\":\"" + status + "\""
+                + ",\"rows\":" + rowCount
+                + ",\"estimatedBytes\":" + byteCount
+                + ",\"elapsedMs\":" + ms(elapsed)
+                + ",\"rowsPerSecond\":" + num(seconds > 0 ? rowCount / seconds : 0)
+                + ",\"bytesPerSecond\":" + num(seconds > 0 ? byteCount / seconds : 0)
+                + ",\"connectionWaitMs\":" + ms(connectionWait)
+                + ",\"timeToFirstRowMs\":" + (firstRow < 0 ? "null" : ms(firstRow))
+                + ",\"fetchRoundTrips\":" + trips
+                + ",\"jdbcWaitMs\":" + ms(jdbcWait)
+                + ",\"mappingMs\":" + ms(mapping)
+                + ",\"sinkMs\":" + ms(sink) + "}";
+        }
+    }
+
+    @Override
+    public long getRowsFetched() {
+        return rows.sum();
+    }
+
+    @Override
+    public long getEstimatedBytesFetched() {
+        return bytes.sum();
+    }
+
+    @Override
+    public double getRowsPerSecond() {
+        double seconds = elapsedNanos() / 1e9;
+        return seconds > 0 ? rows.sum() / seconds : 0;
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        double seconds = elapsedNanos() / 1e9;
+        return seconds > 0 ? bytes.sum() / seconds : 0;
+    }
+
+    @Override
+    public int getPartitionsCompleted() {
+        return completed.get();
+    }
+
+    @Override
+    public int getPartitionsFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public int getPartitionsRunning() {
+        return running.get();
+    }
+
+    @Override
+    public long getFetchRoundTrips() {
+        return roundTrips.sum();
+    }
+
+    @Override
+    public double getAvgTimeToFirstRowMs() {
+        int count = firstRows.get();
+        return count > 0 ? firstRowNanos.sum() / 1e6 / count : 0;
+    }
+
+    @Override
+    public double getMaxTimeToFirstRowMs() {
+        return maxFirstRowNanos.get() / 1e6;
+    }
+
+    @Override
+    public double getAvgConnectionWaitMs() {
+        int count = connections.get();
+        return count > 0 ? connectionWaitNanos.sum() / 1e6 / count : 0;
+    }
+
+    @Override
+    public double getMaxConnectionWaitMs() {
+        return maxConnectionWaitNanos.get() / 1e6;
+    }
+
+    @Override
+    public double getJdbcWaitMs() {
+        return jdbcWaitNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getMappingMs() {
+        return mappingNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getSinkMs() {
+        return sinkNanos.sum() / 1e6;
+    }
+
+    @Override
+    public int getPoolActiveConnections() {
+        return pool == null ? -1 : pool.getActiveConnections();
+    }
+
+    @Override
+    public int getPoolIdleConnections() {
+        return pool == null ? -1 : pool.getIdleConnections();
+    }
+
+    @Override
+    public int getPoolThreadsAwaitingConnection() {
+        return pool == null ? -1 : pool.getThreadsAwaitingConnection();
+    }
+
+    private long elapsedNanos() {
+        return (runEndNanos != 0 ? runEndNanos : System.nanoTime()) - runStartNanos;
+    }
+
+    private synchronized String toJson(String concurrency) {
+        double jdbc = jdbcWaitNanos.sum();
+        double client = mappingNanos.sum() + sinkNanos.sum();
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"finishedAt\": \"").append(Instant.now()).append("\",\n");
+        json.append("  \"elapsedMs\": ").append(ms(elapsedNanos())).append(",\n");
+        json.append("  \"rows\": ").append(getRowsFetched()).append(",\n");
+        json.append("  \"estimatedBytes\": ").append(getEstimatedBytesFetched()).append(",\n");
+        json.append("  \"rowsPerSecond\": ").append(num(getRowsPerSecond())).append(",\n");
+        json.append("  \"bytesPerSecond\": ").append(num(getBytesPerSecond())).append(",\n");
+        json.append("  \"partitionsCompleted\": ").append(getPartitionsCompleted()).append(",\n");
+        json.append("  \"partitionsFailed\": ").append(getPartitionsFailed()).append(",\n");
+        json.append("  \"fetchRoundTrips\": ").append(getFetchRoundTrips()).append(",\n");
+        json.append("  \"avgTimeToFirstRowMs\": ").append(num(getAvgTimeToFirstRowMs())).append(",\n");
+        json.append("  \"maxTimeToFirstRowMs\": ").append(num(getMaxTimeToFirstRowMs())).append(",\n");
+        json.append("  \"avgConnectionWaitMs\": ").append(num(getAvgConnectionWaitMs())).append(",\n");
+        json.append("  \"maxConnectionWaitMs\": ").append(num(getMaxConnectionWaitMs())).append(",\n");
+        json.append("  \"jdbcWaitMs\": ").append(num(getJdbcWaitMs())).append(",\n");
+        json.append("  \"mappingMs\": ").append(num(getMappingMs())).append(",\n");
+        json.append("  \"sinkMs\": ").append(num(getSinkMs())).append(",\n");
+        json.append("  \"jdbcWaitShare\": ").append(num(jdbc + client > 0 ? jdbc / (jdbc + client) : 0)).append(",\n");
+        json.append("  \"concurrency\": \"").append(concurrency).append("\",\n");
+        if (pool != null) {
+            json.append("  \"pool\": {\"active\": ").append(pool.getActiveConnections())
+                .append(", \"idle\": ").append(pool.getIdleConnections())
+                .append(", \"total\": ").append(pool.getTotalConnections())
+                .append(", \"maxThreadsAwaiting\": ").append(maxThreadsAwaiting.get()).append("},\n");
+        }
+        json.append("  \"partitions\": [");
+        for (int i = 0; i < partitions.size(); i++) {
+            json.append(i == 0 ? "\n    " : ",\n    ").append(partitions.get(i).toJson());
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    private static String ms(long nanos) {
+        return num(nanos / 1e6);
+    }
+
+    private static String num(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static HikariPoolMXBean hikariPool(DataSource dataSource) {
+        try {
+            if (dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+            }
+        } catch (SQLException e) {
+            System.err.println("Hikari pool metrics unavailable: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(
+                "com.example.executor:type=ParallelQueryExecutor,name=" + INSTANCES.incrementAndGet());
+            server.registerMBean(this, name);
+            objectName = name;
+        } catch (Exception e) {
+            System.err.println("Could not register executor metrics MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Unregister the MXBean, so a discarded executor does not stay reachable
+     * from the platform MBean server.
+     */
+    @Override
+    public synchronized void close() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            System.err.println("Could not unregister executor metrics MBean: " + e.getMessage());
+        }
+        objectName = null;
+    }
+}
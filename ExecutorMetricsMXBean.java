@@ -0,0 +1,47 @@
+package com.example.executor;
+
+/**
+ * JMX view of {@link ExecutorMetrics}: totals of the current (or last) run
+ * and a live snapshot of the Hikari pool. Times are in milliseconds.
+ */
+public interface ExecutorMetricsMXBean {
+
+    long getRowsFetched();
+
+    long getEstimatedBytesFetched();
+
+    double getRowsPerSecond();
+
+    double getBytesPerSecond();
+
+    int getPartitionsCompleted();
+
+    int getPartitionsFailed();
+
+    int getPartitionsRunning();
+
+    long getFetchRoundTrips();
+
+    double getAvgTimeToFirstRowMs();
+
+    double getMaxTimeToFirstRowMs();
+
+    double getAvgConnectionWaitMs();
+
+    double getMaxConnectionWaitMs();
+
+    /** Time fetch threads spent blocked in executeQuery()/next(). */
+    double getJdbcWaitMs();
+
+    /** Time spent mapping ResultSet rows to objects. */
+    double getMappingMs();
+
+    /** Time spent inside sinks. */
+    double getSinkMs();
+
+    int getPoolActiveConnections();
+
+    int getPoolIdleConnections();
+
+    int getPoolThreadsAwaitingConnection();
+}
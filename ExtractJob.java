@@ -0,0 +1,347 @@
+package com.example.executor;
+
+import com.example.config.DatabaseConfig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * One extraction query of a multi-query run (see
+ * {@link ParallelQueryExecutor#executeJobs(List)}).
+ * <p>
+ * A job is a SQL query with optional bind values, an integer partition key
+ * column, a sink and the names of jobs that must complete first. The query
+ * runs once per key value as {@code SELECT * FROM (<sql>) a WHERE a.<key> = ?},
+ * and its columns are mapped onto {@code ResultData} by name, so it should
+ * return some of {@code id, grade, name, description, created_date}.
+ */
+public final class ExtractJob {
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]+");
+    private static final Pattern COLUMN = Pattern.compile("[A-Za-z_][A-Za-z0-9_$#]*");
+    private static final Pattern INTEGER = Pattern.compile("-?\\d{1,18}");
+
+    private final String name;
+    private final String template;
+    private final String sql;
+    private final Object[] binds;
+    private final String partitionKey;
+    private final int[] keys;
+    private final String sink;
+    private final List<String> dependsOn;
+
+    /**
+     * @param keys     key values to extract, or null to discover them with a
+     *                 {@code GROUP BY} over the query
+     * @param sink     {@code csv:<dir>}, {@code ndjson:<dir>},
+     *                 {@code extract:<file>} or {@code none}
+     * @param binds    values for the {@code ?} placeholders in {@code sql}
+     */
+    public ExtractJob(String name, String sql, String partitionKey, int[] keys, String sink,
+                      List<String> dependsOn, Object... binds) {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid job name: " + name);
+        }
+        if (!COLUMN.matcher(partitionKey).matches()) {
+            throw new IllegalArgumentException("Invalid partition key of job " + name + ": " + partitionKey);
+        }
+        this.name = name;
+        this.sql = sql.trim();
+        this.template = "SELECT * FROM (\n" + this.sql + "\n) a WHERE a." + partitionKey + " = ?\n";
+        this.binds = binds == null ? new Object[0] : binds.clone();
+        this.partitionKey = partitionKey;
+        this.keys = keys == null ? null : keys.clone();
+        this.sink = sink.trim();
+        this.dependsOn = List.copyOf(dependsOn);
+    }
+
+    private ExtractJob(String template) {
+        this.name = null;
+        this.sql = null;
+        this.template = template;
+        this.binds = new Object[0];
+        this.partitionKey = "grade";
+        this.keys = null;
+        this.sink = "none";
+        this.dependsOn = List.of();
+    }
+
+    /**
+     * The executor's own {@code main_data} query, partitioned by grade.
+     */
+    static ExtractJob mainData() {
+        // TODO: Replace with your actual SQL query
+        return new ExtractJob("""
+            SELECT id, grade, name, description, created_date
+            FROM main_data a
+            WHERE a.grade = ?
+            """);
+    }
+
+    /**
+     * Jobs listed in {@code executor.jobs}, each configured by
+     * {@code job.<name>.sql}, {@code .binds}, {@code .partition-key},
+     * {@code .keys}, {@code .sink} and {@code .depends-on}.
+     */
+    public static List<ExtractJob> fromConfig() {
+        List<ExtractJob> jobs = new ArrayList<>();
+        for (String name : split(DatabaseConfig.getProperty("executor.jobs", ""))) {
+            String prefix = "job." + name + ".";
+            String sql = DatabaseConfig.getProperty(prefix + "sql", "").trim();
+            if (sql.isEmpty()) {
+                throw new IllegalArgumentException("Missing " + prefix + "sql");
+            }
+            String keyList = DatabaseConfig.getProperty(prefix + "keys", "auto").trim();
+            int[] keys = "auto".equalsIgnoreCase(keyList)
+                ? null
+                : split(keyList).stream().mapToInt(Integer::parseInt).toArray();
+            Object[] binds = split(DatabaseConfig.getProperty(prefix + "binds", "")).stream()
+                .map(value -> INTEGER.matcher(value).matches() ? (Object) Long.valueOf(value) : value)
+                .toArray();
+            jobs.add(new ExtractJob(name, sql,
+                DatabaseConfig.getProperty(prefix + "partition-key", "grade").trim(),
+                keys,
+                DatabaseConfig.getProperty(prefix + "sink", "csv:exports/" + name),
+                split(DatabaseConfig.getProperty(prefix + "depends-on", "")),
+                binds));
+        }
+        return jobs;
+    }
+
+    /**
+     * Check that job names are unique, every dependency exists and there is
+     * no cycle.
+     *
+     * @throws IllegalArgumentException otherwise
+     */
+    static void checkGraph(List<ExtractJob> jobs) {
+        Map<String, ExtractJob> byName = new LinkedHashMap<>();
+        for (ExtractJob job : jobs) {
+            if (byName.put(job.name, job) != null) {
+                throw new IllegalArgumentException("Duplicate job: " + job.name);
+            }
+        }
+        for (ExtractJob job : jobs) {
+            for (String dependency : job.dependsOn) {
+                if (!byName.containsKey(dependency)) {
+                    throw new IllegalArgumentException("Job " + job.name + " depends on unknown job " + dependency);
+                }
+            }
+        }
+        Map<String, Boolean> visiting = new HashMap<>();
+        for (ExtractJob job : jobs) {
+            checkCycle(job, byName, visiting, new ArrayList<>());
+        }
+    }
+
+    private static void checkCycle(ExtractJob job, Map<String, ExtractJob> byName, Map<String, Boolean> state,
+                                   List<String> path) {
+        Boolean done = state.get(job.name);
+        if (Boolean.TRUE.equals(done)) {
+            return;
+        }
+        path.add(job.name);
+        if (done != null) {
+            throw new IllegalArgumentException("Job dependency cycle: " + String.join(" -> ", path));
+        }
+        state.put(job.name, false);
+        for (String dependency : job.dependsOn) {
+            checkCycle(byName.get(dependency), byName, state, path);
+        }
+        state.put(job.name, true);
+        path.remove(path.size() - 1);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getDependsOn() {
+        return dependsOn;
+    }
+
+    /**
+     * How the job reads its large text column, or null to read it in full.
+     */
+    LargeTextColumn largeText() {
+        return LargeTextColumn.fromConfig(name);
+    }
+
+    /**
+     * Statement text for one partition: the template plus the partition's
+     * predicate over alias {@code a}.
+     */
+    String sqlFor(Partition partition) {
+        return partition.getPredicate() == null ? template : template + "  AND " + partition.getPredicate();
+    }
+
+    /**
+     * Bind the job's values, the partition key and the partition's own
+     * values, in that order.
+     */
+    void bind(PreparedStatement stmt, Partition partition) throws SQLException {
+        int index = 1;
+        for (Object bind : binds) {
+            stmt.setObject(index++, bind);
+        }
+        stmt.setInt(index++, partition.getGrade());
+        for (Object bind : partition.getBinds()) {
+            stmt.setObject(index++, bind);
+        }
+    }
+
+    /**
+     * The values {@link #bind} sets, in order.
+     */
+    List<Object> bindValues(Partition partition) {
+        List<Object> values = new ArrayList<>(Arrays.asList(binds));
+        values.add(partition.getGrade());
+        values.addAll(Arrays.asList(partition.getBinds()));
+        return values;
+    }
+
+    /**
+     * One partition per key value. Discovered keys are ordered by descending
+     * row count so the largest partitions start first.
+     */
+    List<Partition> plan(Connection conn) throws SQLException {
+        List<Partition> partitions = new ArrayList<>();
+        if (keys != null) {
+            for (int key : keys) {
+                partitions.add(Partition.wholeGrade(key).inJob(name));
+            }
+            return partitions;
+        }
+        String discovery = "SELECT a." + partitionKey + ", COUNT(*) FROM (\n" + sql + "\n) a GROUP BY a."
+            + partitionKey + " ORDER BY 2 DESC";
+        try (PreparedStatement stmt = conn.prepareStatement(discovery)) {
+            for (int i = 0; i < binds.length; i++) {
+                stmt.setObject(i + 1, binds[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    partitions.add(Partition.wholeGrade(rs.getInt(1)).inJob(name));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Open the job's sink.
+     */
+    Output open() throws IOException {
+        int colon = sink.indexOf(':');
+        String type = (colon < 0 ? sink : sink.substring(0, colon)).trim().toLowerCase();
+        Path target = colon < 0 ? null : Path.of(sink.substring(colon + 1).trim());
+        switch (type) {
+            case "none":
+                return new Output() {
+                    @Override
+                    public ResultSink sinkFor(Partition partition) {
+                        return row -> { };
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            case "csv":
+            case "ndjson":
+                TextFileExporter exporter = new TextFileExporter(requireTarget(target), name,
+                    TextFileExporter.Format.valueOf(type.toUpperCase()),
+                    Boolean.parseBoolean(DatabaseConfig.getProperty("executor.export.file-per-grade", "false").trim()),
+                    DatabaseConfig.getIntProperty("executor.export.roll-size-mb", 512) * 1024L * 1024L,
+                    DatabaseConfig.getIntProperty("executor.export.roll-rows", 0));
+                return new Output() {
+                    @Override
+                    public ResultSink sinkFor(Partition partition) {
+                        return exporter.newPartition(partition);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        exporter.close();
+                    }
+
+                    @Override
+                    public void abort() throws IOException {
+                        exporter.abort();
+                    }
+                };
+            case "extract":
+                ColumnarExtractWriter writer = new ColumnarExtractWriter(requireTarget(target),
+                    DatabaseConfig.getIntProperty("executor.extract.rows-per-block", 65_536));
+                return new Output() {
+                    @Override
+                    public ResultSink sinkFor(Partition partition) {
+                        return writer.newPartition(partition.getId());
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        writer.close();
+                    }
+
+                    @Override
+                    public void abort() throws IOException {
+                        writer.abort();
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Unknown sink of job " + name + ": " + sink);
+        }
+    }
+
+    private Path requireTarget(Path target) {
+        if (target == null) {
+            throw new IllegalArgumentException("Sink of job " + name + " needs a path: " + sink);
+        }
+        return target;
+    }
+
+    private static List<String> split(String list) {
+        List<String> values = new ArrayList<>();
+        for (String value : list.split(",")) {
+            if (!value.trim().isEmpty()) {
+                values.add(value.trim());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Where the rows of a running job go; closed once all its partitions are
+     * done, or aborted if one of them failed.
+     */
+    interface Output extends AutoCloseable {
+        ResultSink sinkFor(Partition partition);
+
+        @Override
+        void close() throws IOException;
+
+        /**
+         * Drop what was written so far. Outputs that cannot just close.
+         */
+        default void abort() throws IOException {
+            close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + partitionKey + (keys == null ? " auto" : " " + Arrays.toString(keys)) + " -> " + sink
+            + (dependsOn.isEmpty() ? "" : ", after " + dependsOn) + ")";
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.executor;
+
+import com.example.config.DatabaseConfig;
+import com.example.model.ResultData;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drops rows whose {@code id} was already delivered by another partition of
+ * the same run, e.g. from overlapping partition predicates. Each run starts
+ * with an empty set, so ids delivered by earlier runs, such as those the
+ * watermark overlap window re-reads, are not dropped. Seen ids are kept in an
+ * {@link OffHeapLongSet} shared by all partitions, so hundreds of millions of
+ * ids cost no heap objects.
+ */
+public class IdDeduplicator implements AutoCloseable {
+
+    private static final int SEGMENTS = 64;
+
+    private final OffHeapLongSet seen;
+    private final LongAdder duplicates = new LongAdder();
+
+    public IdDeduplicator(long expectedIds) {
+        this.seen = new OffHeapLongSet(expectedIds, SEGMENTS);
+    }
+
+    /**
+     * Deduplicator sized by {@code executor.dedup.expected-ids}, or null when
+     * {@code executor.dedup} is off.
+     */
+    public static IdDeduplicator fromConfig() {
+        if (!Boolean.parseBoolean(DatabaseConfig.getProperty("executor.dedup", "false").trim())) {
+            return null;
+        }
+        return new IdDeduplicator(DatabaseConfig.getIntProperty("executor.dedup.expected-ids", 10_000_000));
+    }
+
+    /**
+     * Wrap a sink so it only sees the first row of each id. Ids cannot be
+     * taken back out of the set, so the wrapped sink never discards rows and
+     * cancelled partitions are not retried.
+     */
+    public ResultSink deduplicating(ResultSink sink) {
+        return new ResultSink() {
+            @Override
+            public void accept(ResultData row) throws Exception {
+                if (seen.add(row.getId())) {
+                    sink.accept(row);
+                } else {
+                    duplicates.increment();
+                }
+            }
+
+            @Override
+            public void accept(ResultData row, LargeTextColumn.Text text) throws Exception {
+                if (seen.add(row.getId())) {
+                    sink.accept(row, text);
+                } else {
+                    duplicates.increment();
+                }
+            }
+
+            @Override
+            public void partitionComplete(Partition partition, int recordCount) throws Exception {
+                sink.partitionComplete(partition, recordCount);
+            }
+        };
+    }
+
+    /** Rows dropped so far. */
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    /** Distinct ids seen so far. */
+    public long getDistinctIds() {
+        return seen.size();
+    }
+
+    @Override
+    public void close() {
+        seen.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d distinct ids, %d duplicates dropped, %d MB off-heap",
+            seen.size(), getDuplicates(), seen.offHeapBytes() / (1024 * 1024));
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.executor;
+
+import com.example.config.DatabaseConfig;
+import com.example.model.ResultData;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * How one large text column, typically a CLOB {@code description}, is read.
+ * <ul>
+ * <li>{@code full}: with {@code getString}, like every other column.</li>
+ * <li>{@code stream}: not mapped onto the row; the sink gets a
+ * {@link Reader} through {@link ResultSink#accept(ResultData, Text)}. Sinks
+ * that write the value out copy it through a reusable buffer, others fall
+ * back to reading it into the row.</li>
+ * <li>{@code truncate}: at most {@code max-chars} characters are read.</li>
+ * <li>{@code skip}: the column is not read at all and stays null.</li>
+ * </ul>
+ */
+public final class LargeTextColumn {
+
+    public enum Mode {
+        FULL,
+        STREAM,
+        TRUNCATE,
+        SKIP
+    }
+
+    private final String column;
+    private final Mode mode;
+    private final int maxChars;
+    private final int bufferChars;
+    private final MethodHandle setter;
+
+    public LargeTextColumn(String column, Mode mode, int maxChars, int bufferChars) {
+        if (mode == Mode.TRUNCATE && maxChars < 0) {
+            throw new IllegalArgumentException("Negative max-chars for " + column + ": " + maxChars);
+        }
+        this.column = column.trim();
+        this.mode = mode;
+        this.maxChars = maxChars;
+        this.bufferChars = Math.max(256, bufferChars);
+        this.setter = setterFor(this.column);
+    }
+
+    /**
+     * Handling configured by {@code executor.large-text.*}, overridden per job
+     * by {@code job.<name>.large-text} and {@code job.<name>.large-text.max-chars}.
+     * Returns null in {@code full} mode.
+     *
+     * @param job job name, or null for the executor's own query
+     */
+    static LargeTextColumn fromConfig(String job) {
+        String mode = DatabaseConfig.getProperty("executor.large-text", "full");
+        int maxChars = DatabaseConfig.getIntProperty("executor.large-text.max-chars", 4000);
+        if (job != null) {
+            mode = DatabaseConfig.getProperty("job." + job + ".large-text", mode);
+            maxChars = DatabaseConfig.getIntProperty("job." + job + ".large-text.max-chars", maxChars);
+        }
+        Mode parsed = Mode.valueOf(mode.trim().toUpperCase());
+        if (parsed == Mode.FULL) {
+            return null;
+        }
+        return new LargeTextColumn(DatabaseConfig.getProperty("executor.large-text.column", "description"),
+            parsed, maxChars, DatabaseConfig.getIntProperty("executor.large-text.buffer-chars", 8192));
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Mapper for the query's columns, leaving out this column unless it is
+     * read in full.
+     */
+    RowMapper<ResultData> mapper(ResultSetMetaData metaData) throws SQLException {
+        return RowMapper.forType(ResultData.class, metaData, column);
+    }
+
+    /**
+     * Per-partition reader of the column, or null if the query does not
+     * return it or it is skipped.
+     */
+    Text open(ResultSetMetaData metaData) throws SQLException {
+        if (mode == Mode.SKIP || mode == Mode.FULL) {
+            return null;
+        }
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            if (RowMapperFactory.normalize(metaData.getColumnLabel(i)).equals(RowMapperFactory.normalize(column))) {
+                return new Text(i);
+            }
+        }
+        return null;
+    }
+
+    private static MethodHandle setterFor(String column) {
+        for (Method method : ResultData.class.getMethods()) {
+            if (method.getName().startsWith("set") && method.getParameterCount() == 1
+                    && method.getParameterTypes()[0] == String.class
+                    && RowMapperFactory.normalize(method.getName().substring(3)).equals(RowMapperFactory.normalize(column))) {
+                try {
+                    return MethodHandles.publicLookup().unreflect(method)
+                        .asType(MethodType.methodType(void.class, ResultData.class, String.class));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalArgumentException("Cannot set large text column " + column, e);
+                }
+            }
+        }
+        throw new IllegalArgumentException("ResultData has no text property for large text column " + column);
+    }
+
+    @Override
+    public String toString() {
+        return column + " " + mode.name().toLowerCase() + (mode == Mode.TRUNCATE ? " to " + maxChars + " chars" : "");
+    }
+
+    /**
+     * The column's value in the row being delivered. One instance and one
+     * buffer are reused for all rows of a partition, on its fetch thread.
+     */
+    public final class Text {
+        private final int index;
+        private final char[] buffer;
+        private Reader reader;
+        private long streamedChars;
+
+        private Text(int index) {
+            this.index = index;
+            this.buffer = new char[mode == Mode.TRUNCATE ? Math.min(maxChars, bufferChars) : bufferChars];
+        }
+
+        /** Property name of the column, e.g. {@code description}. */
+        public String getColumn() {
+            return column;
+        }
+
+        /**
+         * The value as a stream, or null for SQL NULL. Only valid during the
+         * {@code accept} call it was passed to.
+         */
+        public Reader reader() {
+            return reader;
+        }
+
+        /**
+         * Scratch buffer for copying the value; its contents are not kept
+         * between calls.
+         */
+        public char[] buffer() {
+            return buffer;
+        }
+
+        /**
+         * Characters of the current row's value read from {@link #reader()},
+         * so the fetch metrics can account for a column that is never on
+         * the row.
+         */
+        long streamedChars() {
+            return streamedChars;
+        }
+
+        /**
+         * Read the rest of the value and set it on the row.
+         */
+        public void readInto(ResultData row) throws IOException {
+            if (reader == null) {
+                set(row, null);
+                return;
+            }
+            StringBuilder value = new StringBuilder();
+            for (int n; (n = reader.read(buffer)) >= 0; ) {
+                value.append(buffer, 0, n);
+            }
+            set(row, value.toString());
+        }
+
+        /**
+         * Read the column for the current row: truncated onto the row, or
+         * opened as a stream for {@link #deliver(ResultData, ResultSink)}.
+         */
+        void load(ResultSet rs, ResultData row) throws SQLException, IOException {
+            reader = rs.getCharacterStream(index);
+            streamedChars = 0;
+            if (mode != Mode.TRUNCATE) {
+                if (reader != null) {
+                    reader = new CountingReader(reader);
+                }
+                return;
+            }
+            try (Reader in = reader) {
+                reader = null;
+                if (in == null) {
+                    set(row, null);
+                    return;
+                }
+                StringBuilder value = maxChars > buffer.length ? new StringBuilder() : null;
+                int total = 0;
+                while (total < maxChars) {
+                    // Fill the buffer directly when the whole prefix fits
+                    int offset = value == null ? total : 0;
+                    int n = in.read(buffer, offset, Math.min(buffer.length - offset, maxChars - total));
+                    if (n < 0) {
+                        break;
+                    }
+                    if (value != null) {
+                        value.append(buffer, 0, n);
+                    }
+                    total += n;
+                }
+                set(row, value != null ? value.toString() : new String(buffer, 0, total));
+            }
+        }
+
+        /**
+         * Hand the row to the sink, with the stream if one was opened.
+         */
+        void deliver(ResultData row, ResultSink sink) throws Exception {
+            if (mode != Mode.STREAM) {
+                sink.accept(row);
+                return;
+            }
+            try {
+                sink.accept(row, this);
+            } finally {
+                if (reader != null) {
+                    reader.close();
+                    reader = null;
+                }
+            }
+        }
+
+        private final class CountingReader extends FilterReader {
+            CountingReader(Reader in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                int c = super.read();
+                if (c >= 0) {
+                    streamedChars++;
+                }
+                return c;
+            }
+
+            @Override
+            public int read(char[] chars, int offset, int length) throws IOException {
+                int n = super.read(chars, offset, length);
+                if (n > 0) {
+                    streamedChars += n;
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                streamedChars += skipped;
+                return skipped;
+            }
+        }
+
+        private void set(ResultData row, String value) {
+            try {
+                setter.invokeExact(row, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Setting " + column + " failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.executor;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Concurrent set of {@code long} values stored outside the Java heap.
+ * <p>
+ * Values live in direct buffers split into independently sized segments,
+ * each an open-addressing table with linear probing. Inserts claim empty
+ * slots with compare-and-set, so threads only contend when they probe the
+ * same slot; a segment is locked exclusively only while it doubles. Zero
+ * marks an empty slot and is tracked separately. Memory is 8 bytes per slot
+ * at a load factor of at most 0.6: about 14 bytes per value when full, up to
+ * about 27 just after a segment doubles, with no per-value objects. A segment grows to at most 2^27 slots (1 GB) and then
+ * fills up to 15/16 before inserts fail.
+ */
+public class OffHeapLongSet implements AutoCloseable {
+
+    private static final VarHandle SLOTS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final double LOAD_FACTOR = 0.6;
+    private static final int MIN_SLOTS = 1 << 10;
+    private static final int MAX_SLOTS = 1 << 27;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final AtomicBoolean containsZero = new AtomicBoolean();
+
+    /**
+     * @param expectedSize values to size the initial tables for
+     * @param segmentCount number of independently resized segments, a power of two
+     */
+    public OffHeapLongSet(long expectedSize, int segmentCount) {
+        if (Integer.bitCount(segmentCount) != 1) {
+            throw new IllegalArgumentException("Segment count must be a power of two: " + segmentCount);
+        }
+        long perSegment = (long) Math.ceil(Math.max(1, expectedSize) / LOAD_FACTOR / segmentCount);
+        int slots = (int) Math.min(MAX_SLOTS, Math.max(MIN_SLOTS, Long.highestOneBit(perSegment - 1) << 1));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(slots);
+        }
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    /**
+     * Add a value.
+     *
+     * @return true if it was not present before
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            return containsZero.compareAndSet(false, true);
+        }
+        long hash = mix(value);
+        return segmentFor(hash).add(value, hash);
+    }
+
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero.get();
+        }
+        long hash = mix(value);
+        return segmentFor(hash).contains(value, hash);
+    }
+
+    /** Number of values in the set. */
+    public long size() {
+        long size = containsZero.get() ? 1 : 0;
+        for (Segment segment : segments) {
+            size += segment.count.get();
+        }
+        return size;
+    }
+
+    /** Bytes currently allocated outside the heap. */
+    public long offHeapBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.capacityBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Drop the tables. The direct buffers are freed by the garbage collector
+     * once unreachable; the set must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        for (Segment segment : segments) {
+            segment.release();
+        }
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments.length == 1 ? segments[0] : segments[(int) (hash >>> segmentShift)];
+    }
+
+    /** Murmur3 finalizer, so sequential ids spread over segments and slots. */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * One table. Inserts and lookups share the read lock and race on slots
+     * with CAS; doubling takes the write lock.
+     */
+    private static final class Segment {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final AtomicLong count = new AtomicLong();
+        ByteBuffer table;
+        int mask;
+        volatile long threshold;
+
+        Segment(int slots) {
+            allocate(slots);
+        }
+
+        boolean add(long value, long hash) {
+            lock.readLock().lock();
+            try {
+                ByteBuffer current = table;
+                int mask = this.mask;
+                int index = (int) hash & mask;
+                boolean inserted = false;
+                for (int probes = 0; probes <= mask && !inserted; probes++) {
+                    int offset = index << 3;
+                    long slot = (long) SLOTS.getVolatile(current, offset);
+                    if (slot == 0) {
+                        slot = (long) SLOTS.compareAndExchange(current, offset, 0L, value);
+                        inserted = slot == 0;
+                    }
+                    if (slot == value) {
+                        return false;
+                    }
+                    index = (index + 1) & mask;
+                }
+                if (!inserted) {
+                    throw new IllegalStateException("Off-heap set segment is full");
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (count.incrementAndGet() > threshold) {
+                grow();
+            }
+            return true;
+        }
+
+        boolean contains(long value, long hash) {
+            lock.readLock().lock();
+            try {
+                int index = (int) hash & mask;
+                for (int probes = 0; probes <= mask; probes++) {
+                    long slot = (long) SLOTS.getVolatile(table, index << 3);
+                    if (slot == value) {
+                        return true;
+                    }
+                    if (slot == 0) {
+                        return false;
+                    }
+                    index = (index + 1) & mask;
+                }
+                return false;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void grow() {
+            lock.writeLock().lock();
+            try {
+                if (count.get() <= threshold) {
+                    return;
+                }
+                if (mask + 1 >= MAX_SLOTS) {
+                    // Keep filling past the load factor before giving up
+                    long fullThreshold = MAX_SLOTS - MAX_SLOTS / 16;
+                    if (threshold < fullThreshold) {
+                        threshold = fullThreshold;
+                        return;
+                    }
+                    throw new IllegalStateException("Off-heap set segment is full at " + count.get() + " values");
+                }
+                ByteBuffer old = table;
+                int oldSlots = mask + 1;
+                allocate(oldSlots * 2);
+                for (int i = 0; i < oldSlots; i++) {
+                    long value = old.getLong(i << 3);
+                    if (value != 0) {
+                        int index = (int) mix(value) & mask;
+                        while (table.getLong(index << 3) != 0) {
+                            index = (index + 1) & mask;
+                        }
+                        table.putLong(index << 3, value);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void allocate(int slots) {
+            table = ByteBuffer.allocateDirect(slots << 3).order(ByteOrder.nativeOrder());
+            mask = slots - 1;
+            threshold = (long) (slots * LOAD_FACTOR);
+        }
+
+        long capacityBytes() {
+            lock.readLock().lock();
+            try {
+                return table == null ? 0 : table.capacity();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void release() {
+            lock.writeLock().lock();
+            try {
+                table = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
@@ -4,134 +4,1267 @@ import com.example.config.DatabaseConfig;
 import com.example.model.ResultData;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
 
 /**
  * Parallel query executor using HikariCP connection pool.
  * Executes queries for different grade values in parallel threads.
+ * Large grades can be split into several partitions by the configured
+ * {@link Partitioner} so that one skewed grade does not set the wall time.
+ * Partitions are submitted largest-first based on {@link PartitionStats}
+ * recorded by previous runs. Close the executor when done with it to
+ * unregister its metrics MBean.
  */
-public class ParallelQueryExecutor {
+public class ParallelQueryExecutor implements AutoCloseable {
     
+    /** Rows per latency sample reported to the concurrency limiter. */
+    private static final int LATENCY_SAMPLE_ROWS = 1000;
+    
+    /** The built-in {@code main_data} query behind all execute and export methods. */
+    private static final ExtractJob MAIN_QUERY = ExtractJob.mainData();
+    
+    private final ExecutionMode mode;
     private final int threadPoolSize;
+    private final int maxConcurrency;
+    private final long partitionTimeoutMs;
+    private final long jobTimeoutMs;
+    private final int cancelledRetries;
+    private final boolean adaptiveConcurrency;
+    private final ExecutorMetrics metrics;
     private final int fetchSize;
     private final DataSource dataSource;
+    private final Partitioner partitioner;
+    private final boolean largestFirst;
+    private final PartitionStats stats;
+    private final WatermarkStore watermarks;
+    
+    /**
+     * How partition tasks are run.
+     */
+    public enum ExecutionMode {
+        /** Fixed pool of {@code executor.thread-pool-size} platform threads. */
+        FIXED,
+        /**
+         * One virtual thread per partition; a semaphore of
+         * {@code executor.max-concurrency} permits bounds the queries in flight.
+         */
+        VIRTUAL
+    }
     
     public ParallelQueryExecutor() {
+        this(Partitioner.fromConfig());
+    }
+    
+    public ParallelQueryExecutor(Partitioner partitioner) {
+        this(partitioner, ExecutionMode.valueOf(
+            DatabaseConfig.getProperty("executor.mode", "fixed").trim().toUpperCase()));
+    }
+    
+    public ParallelQueryExecutor(Partitioner partitioner, ExecutionMode mode) {
+        this(DatabaseConfig.getDataSource(), partitioner, mode);
+    }
+    
+    /**
+     * Executor over an explicit data source instead of the configured pool,
+     * e.g. an embedded database in benchmarks. Other settings still come
+     * from {@link DatabaseConfig}.
+     */
+    public ParallelQueryExecutor(DataSource dataSource, Partitioner partitioner, ExecutionMode mode) {
+        this(dataSource, partitioner, mode,
+            configuredPath(DatabaseConfig.getProperty("executor.stats-file", "partition-stats.properties")),
+            configuredPath(DatabaseConfig.getProperty("executor.metrics.dir", "metrics")));
+    }
+    
+    /**
+     * Executor with explicit {@code executor.stats-file} and
+     * {@code executor.metrics.dir} locations, null to disable them, so
+     * benchmarks do not read or write the files of normal runs.
+     */
+    ParallelQueryExecutor(DataSource dataSource, Partitioner partitioner, ExecutionMode mode,
+                          Path statsFile, Path metricsDir) {
+        this.mode = mode;
         this.threadPoolSize = DatabaseConfig.getIntProperty("executor.thread-pool-size", 4);
+        this.maxConcurrency = DatabaseConfig.getIntProperty("executor.max-concurrency",
+            DatabaseConfig.getIntProperty("db.pool.size", 10));
         this.fetchSize = DatabaseConfig.getIntProperty("executor.fetch-size", 1000);
-        this.dataSource = DatabaseConfig.getDataSource();
+        this.dataSource = dataSource;
+        this.partitioner = partitioner;
+        this.largestFirst = "lpt".equalsIgnoreCase(DatabaseConfig.getProperty("executor.schedule", "lpt").trim());
+        this.stats = new PartitionStats(statsFile);
+        this.watermarks = WatermarkStore.fromConfig();
+        this.partitionTimeoutMs = DatabaseConfig.getIntProperty("executor.partition-timeout-seconds", 300) * 1000L;
+        this.jobTimeoutMs = DatabaseConfig.getIntProperty("executor.job-timeout-seconds", 0) * 1000L;
+        this.cancelledRetries = DatabaseConfig.getIntProperty("executor.partition-retries", 0);
+        this.adaptiveConcurrency = Boolean.parseBoolean(
+            DatabaseConfig.getProperty("executor.adaptive-concurrency", "false").trim());
+        this.metrics = new ExecutorMetrics(dataSource, metricsDir);
+    }
+    
+    /** A configured file or directory, or null when the setting is empty. */
+    private static Path configuredPath(String value) {
+        return value.trim().isEmpty() ? null : Path.of(value.trim());
+    }
+    
+    /**
+     * Metrics of the current or last run, also registered as an MXBean.
+     */
+    public ExecutorMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Unregister the metrics MBean. The data source is not closed.
+     */
+    @Override
+    public void close() {
+        metrics.close();
     }
     
     /**
      * Execute queries in parallel for all configured grades.
+     * All rows are buffered in memory; use {@link #executeStreaming(ResultSink)}
+     * for large result sets.
+     *
+     * @throws IllegalStateException if some partitions failed, rather than
+     *         returning the rows they fetched before failing
      */
     public List<ResultData> executeParallel() throws Exception {
-        int[] grades = DatabaseConfig.getGrades();
+        List<Partition> partitions = planPartitions(resolveGrades());
+        List<List<ResultData>> perPartition = new ArrayList<>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            perPartition.add(new ArrayList<>());
+        }
+        
+        RunResult result = runPartitions(partitions, index -> listSink(perPartition.get(index)));
+        if (!result.failed.isEmpty()) {
+            throw new IllegalStateException("Results incomplete, partitions failed: " + result.failed);
+        }
+        
+        List<ResultData> allResults = new ArrayList<>(result.totalRecords);
+        for (List<ResultData> rows : perPartition) {
+            allResults.addAll(rows);
+        }
+        return allResults;
+    }
+    
+    /**
+     * Sink adding a partition's rows to its own list, which a retry clears.
+     */
+    private static ResultSink listSink(List<ResultData> rows) {
+        return new ResultSink() {
+            @Override
+            public void accept(ResultData row) {
+                rows.add(row);
+            }
+            
+            @Override
+            public boolean discard(Partition partition) {
+                rows.clear();
+                return true;
+            }
+        };
+    }
+    
+    /**
+     * Execute queries in parallel for all configured grades, keeping the rows
+     * in compact dictionary-encoded column buffers (one per partition) instead
+     * of one {@code ResultData} object per row.
+     *
+     * @throws IllegalStateException if some partitions failed
+     */
+    public ColumnarResults executeColumnar() throws Exception {
+        List<Partition> partitions = planPartitions(resolveGrades());
+        List<ColumnarResultBuffer> buffers = new ArrayList<>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            buffers.add(new ColumnarResultBuffer());
+        }
+        
+        RunResult result = runPartitions(partitions, buffers::get);
+        if (!result.failed.isEmpty()) {
+            throw new IllegalStateException("Results incomplete, partitions failed: " + result.failed);
+        }
+        return new ColumnarResults(buffers);
+    }
+    
+    /**
+     * Execute queries in parallel for all configured grades, folding each row
+     * into its partition's {@link AggregateTable} as it is fetched instead of
+     * keeping it. Memory grows with the number of groups, not rows; the
+     * partial tables are merged with fork-join once the last partition ends.
+     *
+     * @throws IllegalStateException if some partitions failed, since their
+     *         groups would be missing or undercounted
+     */
+    public AggregateTable executeAggregate(Aggregation aggregation) throws Exception {
+        List<Partition> partitions = planPartitions(resolveGrades());
+        List<AggregateTable> tables = new ArrayList<>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            tables.add(new AggregateTable(aggregation));
+        }
         
-        ExecutorService executor = Executors.newFixedThreadPool(threadPoolSize);
+        RunResult result = runPartitions(partitions, tables::get);
+        if (!result.failed.isEmpty()) {
+            throw new IllegalStateException("Aggregate incomplete, partitions failed: " + result.failed);
+        }
+        return tables.isEmpty() ? new AggregateTable(aggregation) : AggregateTable.mergeAll(tables);
+    }
+    
+    /**
+     * Execute queries in parallel for all configured grades into a store that
+     * spills partitions to memory-mapped files once the heap budget
+     * ({@code executor.spill.heap-budget-mb}) is crossed. The caller must close
+     * the returned store to delete its spill files.
+     *
+     * @throws IllegalStateException if some partitions failed, after closing
+     *         the store
+     */
+    public SpillingResultStore executeSpilling() throws Exception {
+        List<Partition> partitions = planPartitions(resolveGrades());
+        SpillingResultStore store = SpillingResultStore.fromConfig();
+        List<ResultSink> sinks = new ArrayList<>(partitions.size());
+        for (Partition partition : partitions) {
+            sinks.add(store.newPartition(partition.getId()));
+        }
+        
+        try {
+            RunResult result = runPartitions(partitions, sinks::get);
+            if (!result.failed.isEmpty()) {
+                throw new IllegalStateException("Results incomplete, partitions failed: " + result.failed);
+            }
+        } catch (Exception e) {
+            store.close();
+            throw e;
+        }
+        if (store.getSpilledRows() > 0) {
+            System.out.printf("Spilled %d records to disk, ~%d KB kept in heap%n",
+                store.getSpilledRows(), store.getHeapBytes() / 1024);
+        }
+        return store;
+    }
+    
+    /**
+     * Execute queries in parallel for all configured grades and write the rows
+     * to a binary columnar extract file (see {@link ColumnarExtractWriter}).
+     * Each partition is encoded on its own fetch thread. If a partition
+     * fails, the file is deleted.
+     *
+     * @return number of rows written
+     * @throws IllegalStateException if some partitions failed
+     */
+    public long exportColumnar(Path file) throws Exception {
+        List<Partition> partitions = planPartitions(resolveGrades());
+        int rowsPerBlock = DatabaseConfig.getIntProperty("executor.extract.rows-per-block", 65_536);
+        ColumnarExtractWriter writer = new ColumnarExtractWriter(file, rowsPerBlock);
+        try {
+            List<ResultSink> sinks = new ArrayList<>(partitions.size());
+            for (Partition partition : partitions) {
+                sinks.add(writer.newPartition(partition.getId()));
+            }
+            RunResult result = runPartitions(partitions, sinks::get);
+            if (!result.failed.isEmpty()) {
+                throw new IllegalStateException("Export incomplete, partitions failed: " + result.failed);
+            }
+        } catch (Exception e) {
+            writer.abort();
+            throw e;
+        }
+        writer.close();
+        return writer.getRowCount();
+    }
+    
+    /**
+     * Execute queries in parallel for all configured grades and write the rows
+     * as CSV or NDJSON files under {@code directory} while they are fetched
+     * (see {@link TextFileExporter} and {@code executor.export.*}). If a
+     * partition fails, the files are deleted.
+     *
+     * @return the files written
+     * @throws IllegalStateException if some partitions failed
+     */
+    public List<Path> exportText(Path directory) throws Exception {
+        List<Partition> partitions = planPartitions(resolveGrades());
+        TextFileExporter exporter = TextFileExporter.fromConfig(directory);
+        try {
+            List<ResultSink> sinks = new ArrayList<>(partitions.size());
+            for (Partition partition : partitions) {
+                sinks.add(exporter.newPartition(partition));
+            }
+            RunResult result = runPartitions(partitions, sinks::get);
+            if (!result.failed.isEmpty()) {
+                throw new IllegalStateException("Export incomplete, partitions failed: " + result.failed);
+            }
+        } catch (Exception e) {
+            exporter.abort();
+            throw e;
+        }
+        exporter.close();
+        return exporter.getFiles();
+    }
+    
+    /**
+     * Resumable export: every partition is written to its own columnar extract
+     * file under {@code directory}, and a {@link RunJournal} named after the
+     * run id records the plan and each completed partition. Calling this again
+     * with the same run id only fetches partitions that failed or are missing.
+     *
+     * @return the partition files, in plan order
+     * @throws IllegalStateException if some partitions did not complete
+     */
+    public List<Path> exportResumable(Path directory, String runId) throws Exception {
+        Files.createDirectories(directory);
+        int rowsPerBlock = DatabaseConfig.getIntProperty("executor.extract.rows-per-block", 65_536);
+        try (RunJournal journal = new RunJournal(directory.resolve(runId + ".journal"))) {
+            List<Partition> plan = journal.hasPlan()
+                ? journal.getPlan()
+                : journal.writePlan(planPartitions(resolveGrades()));
+            
+            List<Partition> pending = new ArrayList<>();
+            for (Partition partition : plan) {
+                if (!journal.isDone(partition)) {
+                    pending.add(partition);
+                }
+            }
+            if (pending.size() < plan.size()) {
+                System.out.printf("Resuming run %s: %d of %d partitions already complete%n",
+                    runId, plan.size() - pending.size(), plan.size());
+            }
+            
+            List<PartitionFileSink> sinks = new ArrayList<>(pending.size());
+            for (Partition partition : pending) {
+                sinks.add(new PartitionFileSink(journal, directory.resolve(runId + "-" + partition.getId() + ".pqx"),
+                    rowsPerBlock));
+            }
+            try {
+                if (!pending.isEmpty()) {
+                    runPartitions(pending, sinks::get);
+                }
+            } finally {
+                for (PartitionFileSink sink : sinks) {
+                    sink.abort();
+                }
+            }
+            
+            List<Path> outputs = journal.completedOutputs();
+            if (outputs.size() < plan.size()) {
+                throw new IllegalStateException("Run " + runId + " incomplete: " + (plan.size() - outputs.size())
+                    + " of " + plan.size() + " partitions missing; rerun with the same run id to resume");
+            }
+            return outputs;
+        }
+    }
+    
+    /**
+     * Execute queries in parallel for all configured grades and emit only the
+     * rows that changed since the previous call, tagged INSERT, UPDATE or
+     * DELETE (see {@link SnapshotDiff}). Per-grade snapshot indexes are kept
+     * under {@code executor.snapshot.dir}. Every grade must be read in full,
+     * since ids missing from the run are reported as deleted.
+     *
+     * @return number of changes emitted
+     * @throws IllegalStateException if incremental mode is on, or
+     *         {@code executor.large-text} is not {@code full}, since the row
+     *         hashes would then miss or misreport description changes
+     */
+    public long executeChanges(SnapshotDiff.ChangeSink changes) throws Exception {
+        if (watermarks != null) {
+            throw new IllegalStateException(
+                "executeChanges() reads every grade in full; turn executor.incremental off");
+        }
+        LargeTextColumn largeText = MAIN_QUERY.largeText();
+        if (largeText != null) {
+            throw new IllegalStateException("executeChanges() hashes every column in full; large text column "
+                + largeText + " is not read in full, set executor.large-text=full");
+        }
+        List<Partition> partitions = planPartitions(resolveGrades());
+        LongAdder changed = new LongAdder();
+        SnapshotDiff diff = new SnapshotDiff(
+            Path.of(DatabaseConfig.getProperty("executor.snapshot.dir", "snapshots").trim()),
+            (type, row) -> {
+                changed.increment();
+                changes.accept(type, row);
+            });
+        diff.begin(partitions);
+        
+        List<ResultSink> sinks = new ArrayList<>(partitions.size());
+        for (Partition partition : partitions) {
+            sinks.add(diff.newPartition(partition));
+        }
+        
+        RunResult result = runPartitions(partitions, sinks::get);
+        diff.finish(result.failed);
+        return changed.sum();
+    }
+    
+    /**
+     * Execute queries in parallel for all configured grades, pushing each row
+     * to the sink as soon as it is fetched. Nothing is retained by the executor,
+     * so heap use does not grow with the result size. The sink is called from
+     * the fetch threads; a slow sink slows down the fetch.
+     *
+     * @return total number of rows delivered to the sink
+     */
+    public long executeStreaming(ResultSink sink) throws Exception {
+        return runPartitions(planPartitions(resolveGrades()), index -> sink).totalRecords;
+    }
+    
+    /**
+     * Like {@link #executeStreaming(ResultSink)}, returning the partitions
+     * that failed instead of the row count.
+     */
+    List<Partition> streamPartitions(ResultSink sink) throws Exception {
+        return runPartitions(planPartitions(resolveGrades()), index -> sink).failed;
+    }
+    
+    /**
+     * Publisher that streams all configured grades to a single subscriber,
+     * fetching only as fast as the subscriber requests rows.
+     */
+    public ResultPublisher publish() {
+        return new ResultPublisher(this);
+    }
+    
+    /**
+     * Grades to process: {@code query.grades}, or every grade present in the
+     * table when it is set to {@code auto}. Discovery also records each grade's
+     * row count as a scheduling estimate.
+     */
+    private int[] resolveGrades() throws SQLException {
+        if (!"auto".equalsIgnoreCase(DatabaseConfig.getProperty("query.grades", "").trim())) {
+            return DatabaseConfig.getGrades();
+        }
+        
+        String sql = "SELECT grade, COUNT(*) FROM main_data GROUP BY grade ORDER BY grade";
+        List<Integer> grades = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                int grade = rs.getInt(1);
+                grades.add(grade);
+                stats.setGradeRowEstimate(grade, rs.getLong(2));
+            }
+        }
+        System.out.println("Discovered grades: " + grades);
+        return grades.stream().mapToInt(Integer::intValue).toArray();
+    }
+    
+    /**
+     * Split each grade into partitions using the configured partitioner.
+     * Probes run sequentially on a single connection before any fetch starts.
+     * In incremental mode a grade with a watermark is fetched as one partition
+     * restricted to rows past the mark, since the delta is small.
+     */
+    private List<Partition> planPartitions(int[] grades) throws SQLException {
+        List<Partition> partitions = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection()) {
+            for (int grade : grades) {
+                if (watermarks != null && watermarks.isIncremental(grade)) {
+                    partitions.add(watermarks.restrict(Partition.wholeGrade(grade)));
+                } else {
+                    partitions.addAll(partitioner.partition(grade, conn));
+                }
+            }
+        }
+        return partitions;
+    }
+    
+    /**
+     * Run one task per partition on the thread pool, delivering rows of the
+     * partition at position {@code i} to {@code sinkForPartition.apply(i)}.
+     */
+    private RunResult runPartitions(List<Partition> partitions, IntFunction<ResultSink> sinkForPartition) throws Exception {
+        ExecutorService executor = newExecutorService();
+        RunContext run = new RunContext(new DeadlineWatchdog(partitionTimeoutMs, jobTimeoutMs), newLimiter(),
+            RowPipeline.fromConfig(), ResultCache.fromConfig());
         List<Future<QueryResult>> futures = new ArrayList<>();
         
-        System.out.println("Starting parallel execution with " + threadPoolSize + " threads...");
-        System.out.println("Processing grades: " + java.util.Arrays.toString(grades));
+        System.out.println(mode == ExecutionMode.VIRTUAL
+            ? "Starting parallel execution on virtual threads, at most " + maxConcurrency + " concurrent queries..."
+            : "Starting parallel execution with " + threadPoolSize + " threads...");
+        System.out.println("Processing grades: " + java.util.Arrays.toString(
+            partitions.stream().mapToInt(Partition::getGrade).distinct().toArray())
+            + " in " + partitions.size() + " partitions");
         
         long startTime = System.currentTimeMillis();
+        metrics.startRun();
+        stats.startRun();
         
-        for (int grade : grades) {
-            futures.add(executor.submit(() -> executeForGrade(grade)));
+        // Submit the most expensive partitions first; sinks stay bound to the
+        // partition's position in the configured order
+        IdDeduplicator dedup = IdDeduplicator.fromConfig();
+        List<Partition> submissionOrder = largestFirst ? stats.largestFirst(partitions) : partitions;
+        for (Partition partition : submissionOrder) {
+            ResultSink sink = sinkForPartition.apply(partitions.indexOf(partition));
+            if (watermarks != null) {
+                sink = watermarks.tracking(sink);
+            }
+            if (dedup != null) {
+                sink = dedup.deduplicating(sink);
+            }
+            futures.add(executor.submit(partitionTask(MAIN_QUERY, partition, sink, run)));
         }
         
         // Collect results
-        List<ResultData> allResults = new ArrayList<>();
         int totalRecords = 0;
+        List<Partition> failed = new ArrayList<>();
         
-        for (Future<QueryResult> future : futures) {
+        for (int i = 0; i < futures.size(); i++) {
+            Future<QueryResult> future = futures.get(i);
             try {
-                QueryResult result = future.get(5, TimeUnit.MINUTES);
-                allResults.addAll(result.data);
+                QueryResult result = awaitPartition(future, run.watchdog);
                 totalRecords += result.recordCount;
-                System.out.printf("  Grade %d: %d records in %d ms%n", 
-                    result.grade, result.recordCount, result.executionTimeMs);
+                // Watermark-restricted partitions only read the delta, which
+                // says nothing about the cost of a full read
+                boolean restricted = watermarks != null && watermarks.isIncremental(result.partition.getGrade());
+                if (!result.cached && !restricted) {
+                    stats.record(result.partition, result.recordCount, result.executionTimeMs);
+                }
+                printResult(result);
             } catch (TimeoutException e) {
-                System.err.println("Query timed out: " + e.getMessage());
+                failed.add(submissionOrder.get(i));
+                System.err.println("Query did not stop after cancellation: " + submissionOrder.get(i));
             } catch (ExecutionException e) {
-                System.err.println("Query failed: " + e.getCause().getMessage());
-                e.getCause().printStackTrace();
+                failed.add(submissionOrder.get(i));
+                reportFailure(e);
             }
         }
         
         long totalTime = System.currentTimeMillis() - startTime;
         System.out.printf("%nTotal: %d records fetched in %d ms%n", totalRecords, totalTime);
+        if (dedup != null) {
+            System.out.println("Deduplication: " + dedup);
+            dedup.close();
+        }
+        finishMetrics(run);
+        stats.save();
+        if (watermarks != null) {
+            watermarks.commit(partitions, failed);
+        }
         
+        run.close();
         executor.shutdown();
         if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
             executor.shutdownNow();
         }
         
-        return allResults;
+        return new RunResult(totalRecords, failed);
     }
     
     /**
-     * Execute query for a specific grade value.
+     * Run several extraction jobs in one pass, sharing the thread pool,
+     * concurrency limit and job deadline. A job starts once all jobs it
+     * depends on have completed, and its partitions then queue behind those
+     * of the jobs already running, so the pool stays busy across jobs. Jobs
+     * depending on a failed job are skipped. Job partitions are not split by
+     * the partitioner and do not use watermarks or recorded stats.
+     *
+     * @return rows extracted per completed job, in completion order
+     * @throws IllegalStateException if a job failed or was skipped, after
+     *                               every runnable job has finished
      */
-    private QueryResult executeForGrade(int grade) throws SQLException {
-        List<ResultData> results = new ArrayList<>();
+    public Map<String, Long> executeJobs(List<ExtractJob> jobs) throws Exception {
+        ExtractJob.checkGraph(jobs);
+        ExecutorService executor = newExecutorService();
+        RunContext run = new RunContext(new DeadlineWatchdog(partitionTimeoutMs, jobTimeoutMs), newLimiter(),
+            RowPipeline.fromConfig(), ResultCache.fromConfig());
+        JobGraphRun graph = new JobGraphRun(jobs, new ExecutorCompletionService<>(executor), run);
+        
+        System.out.println("Starting " + jobs.size() + " jobs " + (mode == ExecutionMode.VIRTUAL
+            ? "on virtual threads, at most " + maxConcurrency + " concurrent queries..."
+            : "with " + threadPoolSize + " threads..."));
         long startTime = System.currentTimeMillis();
+        metrics.startRun();
+        try {
+            graph.startReady();
+            while (graph.hasRunning()) {
+                graph.collect(graph.next());
+            }
+        } finally {
+            graph.closeOpen();
+            run.close();
+            executor.shutdown();
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                executor.shutdownNow();
+            }
+        }
         
-        // TODO: Replace with your actual SQL query
-        String sql = """
-            SELECT id, grade, name, description, created_date 
-            FROM main_data a 
-            WHERE a.grade = ?
-            """;
+        long totalTime = System.currentTimeMillis() - startTime;
+        long totalRecords = graph.completed.values().stream().mapToLong(Long::longValue).sum();
+        System.out.printf("%nTotal: %d jobs, %d records fetched in %d ms%n",
+            graph.completed.size(), totalRecords, totalTime);
+        finishMetrics(run);
+        if (!graph.failed.isEmpty()) {
+            throw new IllegalStateException("Jobs failed or skipped: " + graph.failed);
+        }
+        return graph.completed;
+    }
+    
+    /**
+     * Task for one partition: wait for a concurrency permit, then run it,
+     * through the result cache when {@code executor.cache} is on. With
+     * {@code executor.pipeline} on, the task also waits for the pipeline to
+     * deliver the partition's rows before it completes.
+     */
+    private Callable<QueryResult> partitionTask(ExtractJob job, Partition partition, ResultSink sink,
+                                                RunContext run) {
+        return () -> {
+            RowPipeline.Stage stage = run.pipeline == null ? null : run.pipeline.stage(sink);
+            run.limiter.acquire();
+            try {
+                ResultSink target = stage == null ? sink : stage;
+                return run.cache == null
+                    ? executeWithRetry(job, partition, target, run)
+                    : executeCached(job, partition, target, run);
+            } finally {
+                run.limiter.release();
+                if (stage != null) {
+                    stage.close();
+                }
+            }
+        };
+    }
+    
+    /**
+     * Replay a partition from the result cache if its freshness probe still
+     * matches, else fetch it and write the rows through to a new entry.
+     */
+    private QueryResult executeCached(ExtractJob job, Partition partition, ResultSink sink, RunContext run)
+            throws Exception {
+        long startTime = System.currentTimeMillis();
+        ResultCache.Entry entry;
+        try (Connection conn = dataSource.getConnection()) {
+            entry = run.cache.lookup(conn, job, partition, run.watchdog);
+        }
+        if (entry == null) {
+            return executeWithRetry(job, partition, sink, run);
+        }
+        try (ColumnarExtractReader cached = entry.openIfFresh()) {
+            if (cached != null) {
+                int recordCount = 0;
+                for (ResultData row : cached.read()) {
+                    sink.accept(row);
+                    recordCount++;
+                }
+                sink.partitionComplete(partition, recordCount);
+                return new QueryResult(partition, recordCount, System.currentTimeMillis() - startTime, null, true);
+            }
+        }
+        try (ResultCache.Fill fill = entry.fill(sink)) {
+            return executeWithRetry(job, partition, fill, run);
+        }
+    }
+    
+    private static void printResult(QueryResult result) {
+        System.out.printf("  %s: %d records in %d ms%s%s%n", 
+            result.partition, result.recordCount, result.executionTimeMs,
+            result.fetchSizeSummary == null ? "" : ", fetch size " + result.fetchSizeSummary,
+            result.cached ? " from cache" : "");
+    }
+    
+    /**
+     * Print why a partition failed, with a stack trace only for unexpected errors.
+     */
+    private static void reportFailure(ExecutionException e) {
+        if (e.getCause() instanceof PartitionCancelledException cancelled) {
+            System.err.println("Query cancelled: " + cancelled.getMessage());
+        } else if (e.getCause() instanceof CancellationException) {
+            System.err.println("Query cancelled: " + e.getCause().getMessage());
+        } else {
+            System.err.println("Query failed: " + e.getCause().getMessage());
+            e.getCause().printStackTrace();
+        }
+    }
+    
+    private void finishMetrics(RunContext run) {
+        System.out.println("Concurrency: " + run.limiter);
+        Path metricsFile = metrics.finishRun(run.limiter.toString());
+        if (metricsFile != null) {
+            System.out.printf("Metrics: %.0f rows/s, JDBC wait %.0f ms, mapping %.0f ms, sink %.0f ms -> %s%n",
+                metrics.getRowsPerSecond(), metrics.getJdbcWaitMs(), metrics.getMappingMs(),
+                metrics.getSinkMs(), metricsFile);
+        }
+    }
+    
+    /**
+     * Wait for a partition until the job deadline. Once it has passed, every
+     * running statement is cancelled and the partition gets one more minute
+     * to unwind before its thread is interrupted.
+     */
+    private QueryResult awaitPartition(Future<QueryResult> future, DeadlineWatchdog watchdog) throws Exception {
+        long remaining = watchdog.getJobDeadlineMs() - System.currentTimeMillis();
+        if (watchdog.getJobDeadlineMs() == Long.MAX_VALUE) {
+            return future.get();
+        }
+        try {
+            return future.get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            watchdog.expireJob();
+            try {
+                return future.get(1, TimeUnit.MINUTES);
+            } catch (TimeoutException stuck) {
+                future.cancel(true);
+                throw stuck;
+            }
+        }
+    }
+    
+    /**
+     * Run a partition, re-running it from the start up to
+     * {@code executor.partition-retries} times when it is cancelled by its own
+     * deadline. Before each retry the sink must {@link ResultSink#discard
+     * discard} the rows of the failed attempt; if it cannot, the partition
+     * fails instead of delivering them twice.
+     */
+    private QueryResult executeWithRetry(ExtractJob job, Partition partition, ResultSink sink, RunContext run)
+            throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return executeForPartition(job, partition, sink, run);
+            } catch (PartitionCancelledException e) {
+                if (attempt >= cancelledRetries || e.getReason() != DeadlineWatchdog.Reason.PARTITION_DEADLINE
+                        || run.watchdog.isJobExpired()) {
+                    throw e;
+                }
+                if (!sink.discard(partition)) {
+                    System.err.println(e.getMessage() + ", not retrying: the sink cannot discard rows already delivered");
+                    throw e;
+                }
+                System.err.println(e.getMessage() + ", retrying (" + (attempt + 1) + "/" + cancelledRetries + ")");
+            }
+        }
+    }
+    
+    /**
+     * Concurrency limit for one run: the thread or query limit of the
+     * execution mode, or an AIMD limiter moving up to it when
+     * {@code executor.adaptive-concurrency} is on.
+     */
+    private ConcurrencyLimiter newLimiter() {
+        int limit = mode == ExecutionMode.VIRTUAL ? maxConcurrency : threadPoolSize;
+        if (!adaptiveConcurrency) {
+            return ConcurrencyLimiter.fixed(limit);
+        }
+        return ConcurrencyLimiter.adaptive(
+            DatabaseConfig.getIntProperty("executor.adaptive-concurrency.initial", Math.min(2, limit)),
+            DatabaseConfig.getIntProperty("executor.adaptive-concurrency.min", 1),
+            limit,
+            DatabaseConfig.getIntProperty("executor.adaptive-concurrency.latency-tolerance-pct", 200) / 100.0,
+            DatabaseConfig.getIntProperty("executor.adaptive-concurrency.connection-wait-ms", 100));
+    }
+    
+    /**
+     * Thread pool for one run. Virtual threads are looked up reflectively so the
+     * project still builds for JDK 17; on older runtimes VIRTUAL falls back to a
+     * cached platform-thread pool, still bounded by the concurrency semaphore.
+     */
+    private ExecutorService newExecutorService() {
+        if (mode == ExecutionMode.FIXED) {
+            return Executors.newFixedThreadPool(threadPoolSize);
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Virtual threads require JDK 21+, using a cached thread pool instead");
+            return Executors.newCachedThreadPool();
+        }
+    }
+    
+    /**
+     * Execute a job's query for one partition, handing each row to the sink.
+     */
+    private QueryResult executeForPartition(ExtractJob job, Partition partition, ResultSink sink, RunContext run)
+            throws Exception {
+        int recordCount = 0;
+        String fetchSizeSummary = null;
+        long startTime = System.currentTimeMillis();
+        String sql = job.sqlFor(partition);
         
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        ExecutorMetrics.PartitionMetrics partitionMetrics = metrics.startPartition(partition);
+        ExecutorEvents.PartitionEvent partitionEvent = new ExecutorEvents.PartitionEvent();
+        partitionEvent.begin();
+        boolean success = false;
+        long connectStart = System.nanoTime();
+        try (Connection conn = dataSource.getConnection()) {
+            long connectionWait = System.nanoTime() - connectStart;
+            run.limiter.onConnectionWait(connectionWait);
+            partitionMetrics.onConnection(connectionWait);
+            partitionEvent.connectionWait = connectionWait;
             
-            stmt.setFetchSize(fetchSize);
-            stmt.setInt(1, grade);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    results.add(mapResultData(rs));
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                AdaptiveFetchSize adaptive = AdaptiveFetchSize.fromConfig();
+                int currentFetchSize = adaptive != null ? adaptive.current() : fetchSize;
+                stmt.setFetchSize(currentFetchSize);
+                job.bind(stmt, partition);
+                
+                DeadlineWatchdog.Guard guard = run.watchdog.start(stmt, partition);
+                partitionMetrics.onExecute();
+                FetchBatch batch = new FetchBatch(partition);
+                long waitStart = System.nanoTime();
+                long batchWaitNanos = 0;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    LargeTextColumn largeText = job.largeText();
+                    RowMapper<ResultData> mapper = largeText == null
+                        ? RowMapper.forType(ResultData.class, rs.getMetaData())
+                        : largeText.mapper(rs.getMetaData());
+                    LargeTextColumn.Text text = largeText == null ? null : largeText.open(rs.getMetaData());
+                    while (rs.next()) {
+                        long fetched = System.nanoTime();
+                        long waitNanos = fetched - waitStart;
+                        ResultData row = mapper.map(rs);
+                        if (text != null) {
+                            text.load(rs, row);
+                        }
+                        long mapped = System.nanoTime();
+                        long rowBytes = estimateRowBytes(row);
+                        if (text != null) {
+                            text.deliver(row, sink);
+                            // A streamed column is not on the row; count what the sink read
+                            rowBytes += 2 * text.streamedChars();
+                        } else {
+                            sink.accept(row);
+                        }
+                        if (adaptive != null) {
+                            if (adaptive.onRow(waitNanos, rowBytes) != currentFetchSize) {
+                                currentFetchSize = adaptive.current();
+                                rs.setFetchSize(currentFetchSize);
+                            }
+                        }
+                        recordCount++;
+                        waitStart = System.nanoTime();
+                        if (partitionMetrics.onRow(waitNanos, mapped - fetched, waitStart - mapped, rowBytes,
+                                currentFetchSize)) {
+                            batch.commit(currentFetchSize);
+                            batch = new FetchBatch(partition);
+                        }
+                        batch.add(waitNanos, mapped - fetched, waitStart - mapped);
+                        
+                        // Feed the concurrency limiter with per-row database wait, batch by batch
+                        batchWaitNanos += waitNanos;
+                        if (recordCount % LATENCY_SAMPLE_ROWS == 0) {
+                            run.limiter.onLatencySample((double) batchWaitNanos / LATENCY_SAMPLE_ROWS);
+                            batchWaitNanos = 0;
+                        }
+                    }
+                    partitionMetrics.onEnd(System.nanoTime() - waitStart);
+                    batch.commit(currentFetchSize);
+                    if (adaptive != null) {
+                        fetchSizeSummary = adaptive.toString();
+                    }
+                } catch (SQLException e) {
+                    DeadlineWatchdog.Reason reason = guard.getCancelReason();
+                    if (reason == null && e instanceof SQLTimeoutException) {
+                        reason = DeadlineWatchdog.Reason.PARTITION_DEADLINE;
+                    }
+                    if (reason != null) {
+                        partitionEvent.status = "CANCELLED";
+                        throw new PartitionCancelledException(partition, recordCount, reason, e);
+                    }
+                    throw e;
+                } finally {
+                    guard.close();
+                }
+            }
+            success = true;
+        } finally {
+            partitionMetrics.complete(success);
+            partitionEvent.end();
+            if (partitionEvent.shouldCommit()) {
+                partitionEvent.partition = partition.getId();
+                partitionEvent.grade = partition.getGrade();
+                partitionEvent.chunk = partition.getChunk();
+                partitionEvent.rows = recordCount;
+                if (partitionEvent.status == null) {
+                    partitionEvent.status = success ? "COMPLETED" : "FAILED";
                 }
+                partitionEvent.commit();
             }
         }
+        sink.partitionComplete(partition, recordCount);
         
         long executionTime = System.currentTimeMillis() - startTime;
-        return new QueryResult(grade, results, results.size(), executionTime);
+        return new QueryResult(partition, recordCount, executionTime, fetchSizeSummary);
     }
     
     /**
-     * Map ResultSet row to ResultData object.
-     * TODO: Modify this method based on your actual table columns.
+     * Rough heap footprint of a mapped row, used to keep adaptive fetch sizes
+     * under the memory ceiling. Strings are counted at two bytes per char.
      */
-    private ResultData mapResultData(ResultSet rs) throws SQLException {
-        ResultData data = new ResultData();
-        data.setId(rs.getLong("id"));
-        data.setGrade(rs.getInt("grade"));
-        data.setName(rs.getString("name"));
-        data.setDescription(rs.getString("description"));
-        data.setCreatedDate(rs.getTimestamp("created_date"));
-        return data;
+    private static long estimateRowBytes(ResultData row) {
+        // Object header, the fixed-size columns and a Timestamp; only the
+        // String columns of ResultData are added per row
+        long bytes = 64;
+        if (row.getName() != null) {
+            bytes += 2L * row.getName().length();
+        }
+        if (row.getDescription() != null) {
+            bytes += 2L * row.getDescription().length();
+        }
+        return bytes;
     }
     
     /**
-     * Internal class to hold query result with metadata.
+     * Writes one partition of a resumable run to a temporary file, which is
+     * renamed and journaled only once the partition has completed. A retry
+     * starts a new file; {@link #abort()} removes the file of a partition
+     * that did not complete.
+     */
+    private static class PartitionFileSink implements ResultSink {
+        private final RunJournal journal;
+        private final Path target;
+        private final Path temp;
+        private final int rowsPerBlock;
+        private ColumnarExtractWriter writer;
+        private ResultSink sink;
+        
+        PartitionFileSink(RunJournal journal, Path target, int rowsPerBlock) {
+            this.journal = journal;
+            this.target = target;
+            this.temp = target.resolveSibling(target.getFileName() + ".part");
+            this.rowsPerBlock = rowsPerBlock;
+        }
+        
+        @Override
+        public void accept(ResultData row) throws Exception {
+            open().accept(row);
+        }
+        
+        @Override
+        public void partitionComplete(Partition partition, int recordCount) throws Exception {
+            open().partitionComplete(partition, recordCount);
+            ColumnarExtractWriter done = writer;
+            writer = null;
+            done.close();
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journal.markDone(partition, recordCount, target);
+        }
+        
+        @Override
+        public boolean discard(Partition partition) throws IOException {
+            abort();
+            return true;
+        }
+        
+        /**
+         * Close and delete the temporary file, if the partition did not
+         * complete; a completed partition's file has already been renamed.
+         */
+        void abort() throws IOException {
+            try {
+                if (writer != null) {
+                    writer.abort();
+                }
+            } finally {
+                writer = null;
+                Files.deleteIfExists(temp);
+            }
+        }
+        
+        /** The file is only created once the partition starts delivering. */
+        private ResultSink open() throws IOException {
+            if (writer == null) {
+                writer = new ColumnarExtractWriter(temp, rowsPerBlock);
+                sink = writer.newPartition(target.getFileName().toString());
+            }
+            return sink;
+        }
+    }
+    
+    /**
+     * Accumulates one fetch round trip for the JFR fetch-batch and
+     * row-mapping events. Only allocated once per round trip.
+     */
+    private static class FetchBatch {
+        final Partition partition;
+        final ExecutorEvents.FetchBatchEvent fetchEvent = new ExecutorEvents.FetchBatchEvent();
+        final ExecutorEvents.RowMappingEvent mappingEvent = new ExecutorEvents.RowMappingEvent();
+        int rows;
+        long jdbcWait;
+        long mapping;
+        long sink;
+        
+        FetchBatch(Partition partition) {
+            this.partition = partition;
+            fetchEvent.begin();
+            mappingEvent.begin();
+        }
+        
+        void add(long waitNanos, long mapNanos, long sinkNanos) {
+            rows++;
+            jdbcWait += waitNanos;
+            mapping += mapNanos;
+            sink += sinkNanos;
+        }
+        
+        void commit(int fetchSize) {
+            fetchEvent.end();
+            if (fetchEvent.shouldCommit()) {
+                fetchEvent.partition = partition.getId();
+                fetchEvent.grade = partition.getGrade();
+                fetchEvent.chunk = partition.getChunk();
+                fetchEvent.rows = rows;
+                fetchEvent.fetchSize = fetchSize;
+                fetchEvent.jdbcWait = jdbcWait;
+                fetchEvent.sinkTime = sink;
+                fetchEvent.commit();
+            }
+            mappingEvent.end();
+            if (mappingEvent.shouldCommit()) {
+                mappingEvent.partition = partition.getId();
+                mappingEvent.grade = partition.getGrade();
+                mappingEvent.chunk = partition.getChunk();
+                mappingEvent.rows = rows;
+                mappingEvent.mappingTime = mapping;
+                mappingEvent.commit();
+            }
+        }
+    }
+    
+    /**
+     * Per-run collaborators shared by all partition tasks.
+     */
+    private static class RunContext {
+        final DeadlineWatchdog watchdog;
+        final ConcurrencyLimiter limiter;
+        final RowPipeline pipeline;
+        final ResultCache cache;
+        
+        RunContext(DeadlineWatchdog watchdog, ConcurrencyLimiter limiter, RowPipeline pipeline, ResultCache cache) {
+            this.watchdog = watchdog;
+            this.limiter = limiter;
+            this.pipeline = pipeline;
+            this.cache = cache;
+        }
+        
+        void close() {
+            watchdog.close();
+            if (pipeline != null) {
+                pipeline.close();
+            }
+        }
+    }
+    
+    /**
+     * Scheduling state of one {@link #executeJobs} call. Only the calling
+     * thread touches it; partition tasks report back through the completion
+     * service.
+     */
+    private class JobGraphRun {
+        final List<ExtractJob> waiting;
+        final CompletionService<QueryResult> completion;
+        final RunContext run;
+        final Map<Future<QueryResult>, JobRun> running = new HashMap<>();
+        final Set<JobRun> open = new HashSet<>();
+        final Map<String, Long> completed = new LinkedHashMap<>();
+        final Set<String> failed = new LinkedHashSet<>();
+        
+        JobGraphRun(List<ExtractJob> jobs, CompletionService<QueryResult> completion, RunContext run) {
+            this.waiting = new ArrayList<>(jobs);
+            this.completion = completion;
+            this.run = run;
+        }
+        
+        boolean hasRunning() {
+            return !running.isEmpty();
+        }
+        
+        /**
+         * Start every waiting job whose dependencies have completed, and skip
+         * those with a failed dependency. Repeats until nothing changes, since
+         * a job without partitions completes immediately.
+         */
+        void startReady() {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (Iterator<ExtractJob> it = waiting.iterator(); it.hasNext(); ) {
+                    ExtractJob job = it.next();
+                    if (run.watchdog.isJobExpired() || job.getDependsOn().stream().anyMatch(failed::contains)) {
+                        it.remove();
+                        failed.add(job.getName());
+                        System.err.println("Job skipped: " + job.getName());
+                        changed = true;
+                    } else if (completed.keySet().containsAll(job.getDependsOn())) {
+                        it.remove();
+                        start(job);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        
+        private void start(ExtractJob job) {
+            JobRun jobRun;
+            List<Partition> partitions;
+            try {
+                try (Connection conn = dataSource.getConnection()) {
+                    partitions = job.plan(conn);
+                }
+                jobRun = new JobRun(job, job.open(), partitions.size());
+            } catch (Exception e) {
+                failed.add(job.getName());
+                System.err.println("Job " + job.getName() + " failed to start: " + e.getMessage());
+                return;
+            }
+            open.add(jobRun);
+            System.out.println("Job " + job + ": " + partitions.size() + " partitions");
+            for (Partition partition : partitions) {
+                ResultSink sink = jobRun.output.sinkFor(partition);
+                running.put(completion.submit(partitionTask(job, partition, sink, run)), jobRun);
+            }
+            if (partitions.isEmpty()) {
+                finish(jobRun);
+            }
+        }
+        
+        /**
+         * Next finished partition. Once the job deadline has passed, running
+         * statements are cancelled and each further partition gets one more
+         * minute before all remaining threads are interrupted.
+         */
+        Future<QueryResult> next() throws InterruptedException {
+            if (run.watchdog.getJobDeadlineMs() == Long.MAX_VALUE) {
+                return completion.take();
+            }
+            long remaining = run.watchdog.getJobDeadlineMs() - System.currentTimeMillis();
+            Future<QueryResult> future = completion.poll(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+            if (future == null) {
+                run.watchdog.expireJob();
+                future = completion.poll(1, TimeUnit.MINUTES);
+            }
+            if (future == null) {
+                System.err.println("Queries did not stop after cancellation, interrupting " + running.size());
+                for (Future<QueryResult> stuck : running.keySet()) {
+                    stuck.cancel(true);
+                }
+                future = completion.take();
+            }
+            return future;
+        }
+        
+        void collect(Future<QueryResult> future) throws InterruptedException {
+            JobRun jobRun = running.remove(future);
+            try {
+                QueryResult result = future.get();
+                jobRun.rows += result.recordCount;
+                printResult(result);
+            } catch (ExecutionException e) {
+                jobRun.failed = true;
+                reportFailure(e);
+            } catch (CancellationException e) {
+                jobRun.failed = true;
+                System.err.println("Query interrupted in job " + jobRun.job.getName());
+            }
+            if (--jobRun.pending == 0) {
+                finish(jobRun);
+                startReady();
+            }
+        }
+        
+        private void finish(JobRun jobRun) {
+            open.remove(jobRun);
+            try {
+                if (jobRun.failed) {
+                    jobRun.output.abort();
+                } else {
+                    jobRun.output.close();
+                }
+            } catch (IOException e) {
+                jobRun.failed = true;
+                System.err.println("Job " + jobRun.job.getName() + " could not close its sink: " + e.getMessage());
+            }
+            String name = jobRun.job.getName();
+            if (jobRun.failed) {
+                failed.add(name);
+                System.err.println("Job failed: " + name);
+            } else {
+                completed.put(name, jobRun.rows);
+                System.out.printf("Job %s: %d records in %d ms%n",
+                    name, jobRun.rows, System.currentTimeMillis() - jobRun.startTime);
+            }
+        }
+        
+        /** Abort the sinks of jobs that did not finish, e.g. after an interrupt. */
+        void closeOpen() {
+            for (JobRun jobRun : open) {
+                try {
+                    jobRun.output.abort();
+                } catch (IOException e) {
+                    System.err.println("Could not close sink of job " + jobRun.job.getName() + ": " + e.getMessage());
+                }
+            }
+            open.clear();
+        }
+    }
+    
+    /**
+     * A started job and its partitions still running.
+     */
+    private static class JobRun {
+        final ExtractJob job;
+        final ExtractJob.Output output;
+        final long startTime = System.currentTimeMillis();
+        int pending;
+        long rows;
+        boolean failed;
+        
+        JobRun(ExtractJob job, ExtractJob.Output output, int pending) {
+            this.job = job;
+            this.output = output;
+            this.pending = pending;
+        }
+    }
+    
+    /**
+     * Outcome of one {@link #runPartitions} call.
+     */
+    private static class RunResult {
+        final int totalRecords;
+        final List<Partition> failed;
+        
+        RunResult(int totalRecords, List<Partition> failed) {
+            this.totalRecords = totalRecords;
+            this.failed = failed;
+        }
+    }
+    
+    /**
+     * Internal class to hold query result metadata.
+     * Rows themselves go to the partition's {@link ResultSink}.
      */
     private static class QueryResult {
-        final int grade;
-        final List<ResultData> data;
+        final Partition partition;
         final int recordCount;
         final long executionTimeMs;
+        final String fetchSizeSummary;
+        final boolean cached;
+        
+        QueryResult(Partition partition, int recordCount, long executionTimeMs, String fetchSizeSummary) {
+            this(partition, recordCount, executionTimeMs, fetchSizeSummary, false);
+        }
         
-        QueryResult(int grade, List<ResultData> data, int recordCount, long executionTimeMs) {
-            this.grade = grade;
-            this.data = data;
+        QueryResult(Partition partition, int recordCount, long executionTimeMs, String fetchSizeSummary,
+                    boolean cached) {
+            this.partition = partition;
             this.recordCount = recordCount;
             this.executionTimeMs = executionTimeMs;
+            this.fetchSizeSummary = fetchSizeSummary;
+            this.cached = cached;
         }
     }
 }
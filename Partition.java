@@ -0,0 +1,104 @@
+package com.example.executor;
+
+import java.util.Arrays;
+
+/**
+ * One independently executable slice of a grade's scan.
+ * <p>
+ * A partition is the grade plus an optional extra predicate (and its bind
+ * values) that is ANDed onto {@code WHERE a.grade = ?}. A partition without
+ * a predicate covers the whole grade.
+ */
+public final class Partition {
+
+    private final int grade;
+    private final int chunk;
+    private final int chunkCount;
+    private final String predicate;
+    private final Object[] binds;
+    private final String job;
+
+    public Partition(int grade, int chunk, int chunkCount, String predicate, Object... binds) {
+        this(null, grade, chunk, chunkCount, predicate, binds);
+    }
+
+    private Partition(String job, int grade, int chunk, int chunkCount, String predicate, Object[] binds) {
+        this.job = job;
+        this.grade = grade;
+        this.chunk = chunk;
+        this.chunkCount = chunkCount;
+        this.predicate = predicate;
+        this.binds = binds == null ? new Object[0] : binds.clone();
+    }
+
+    /**
+     * Partition covering the whole grade.
+     */
+    public static Partition wholeGrade(int grade) {
+        return new Partition(grade, 0, 1, null);
+    }
+
+    /**
+     * This partition further restricted by another predicate over alias {@code a}.
+     */
+    public Partition and(String extraPredicate, Object... extraBinds) {
+        Object[] combined = new Object[binds.length + extraBinds.length];
+        System.arraycopy(binds, 0, combined, 0, binds.length);
+        System.arraycopy(extraBinds, 0, combined, binds.length, extraBinds.length);
+        String combinedPredicate = predicate == null ? extraPredicate : "(" + predicate + ") AND " + extraPredicate;
+        return new Partition(job, grade, chunk, chunkCount, combinedPredicate, combined);
+    }
+
+    /**
+     * This partition as part of the named {@link ExtractJob}; the grade is
+     * then the job's partition key value.
+     */
+    public Partition inJob(String jobName) {
+        return new Partition(jobName, grade, chunk, chunkCount, predicate, binds);
+    }
+
+    /** Name of the job this partition belongs to, or null for the main query. */
+    public String getJob() {
+        return job;
+    }
+
+    public int getGrade() {
+        return grade;
+    }
+
+    /** Zero-based chunk index within the grade. */
+    public int getChunk() {
+        return chunk;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    /** Extra SQL predicate over alias {@code a}, or null for the whole grade. */
+    public String getPredicate() {
+        return predicate;
+    }
+
+    /** Bind values for the predicate, in order. */
+    public Object[] getBinds() {
+        return binds.clone();
+    }
+
+    /**
+     * Stable identifier, e.g. {@code 12} or {@code 12-3of8}, prefixed with
+     * the job name ({@code orders/12}) for job partitions.
+     */
+    public String getId() {
+        String id = chunkCount == 1 ? String.valueOf(grade) : grade + "-" + (chunk + 1) + "of" + chunkCount;
+        return job == null ? id : job + "/" + id;
+    }
+
+    @Override
+    public String toString() {
+        return (job == null ? "" : job + ": ") + (chunkCount == 1
+            ? "Grade " + grade
+            : "Grade " + grade + " [" + (chunk + 1) + "/" + chunkCount + "]"
+                + (predicate == null ? "" : " " + predicate + " " + Arrays.toString(binds)));
+    }
+}
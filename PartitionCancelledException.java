@@ -0,0 +1,35 @@
+package com.example.executor;
+
+/**
+ * Thrown when a partition's statement was cancelled by the
+ * {@link DeadlineWatchdog}. Rows fetched before the cancellation have
+ * already been delivered to the sink.
+ */
+public class PartitionCancelledException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Partition partition;
+    private final int deliveredRecords;
+    private final DeadlineWatchdog.Reason reason;
+
+    public PartitionCancelledException(Partition partition, int deliveredRecords,
+                                       DeadlineWatchdog.Reason reason, Throwable cause) {
+        super(partition + " cancelled (" + reason + ") after " + deliveredRecords + " records", cause);
+        this.partition = partition;
+        this.deliveredRecords = deliveredRecords;
+        this.reason = reason;
+    }
+
+    public Partition getPartition() {
+        return partition;
+    }
+
+    public int getDeliveredRecords() {
+        return deliveredRecords;
+    }
+
+    public DeadlineWatchdog.Reason getReason() {
+        return reason;
+    }
+}
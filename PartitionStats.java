@@ -0,0 +1,166 @@
+package com.example.executor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Historical row counts and timings per partition, persisted to a small
+ * properties file between runs. Used to submit the most expensive partitions
+ * first (longest-processing-time scheduling) so a large grade does not start
+ * last and stretch the total run time.
+ * <p>
+ * Keys are {@code partition.<id>.rows|ms} for exact partitions and
+ * {@code grade.<grade>.rows|ms} for whole-grade totals, which are used when the
+ * chunk layout of a grade changes between runs.
+ */
+public class PartitionStats {
+
+    private final Path file;
+    private final Properties stats = new Properties();
+    private final Map<Integer, Long> gradeRowEstimates = new HashMap<>();
+    private final Map<Integer, long[]> currentGradeTotals = new HashMap<>();
+
+    public PartitionStats(Path file) {
+        this.file = file;
+        if (file != null && Files.isReadable(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                stats.load(reader);
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable stats file " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Row-count estimate for a grade from another source, e.g. grade discovery.
+     */
+    public void setGradeRowEstimate(int grade, long rows) {
+        gradeRowEstimates.put(grade, rows);
+    }
+
+    /**
+     * Estimated cost of a partition in milliseconds, or in rows when no timing
+     * history exists at all. Partitions with no information at all are treated
+     * as the most expensive so they are not left for the end.
+     */
+    public long estimate(Partition partition) {
+        long ms = getLong("partition." + partition.getId() + ".ms");
+        if (ms >= 0) {
+            return ms;
+        }
+        long gradeMs = getLong("grade." + partition.getGrade() + ".ms");
+        if (gradeMs >= 0) {
+            return gradeMs / partition.getChunkCount();
+        }
+
+        long rows = getLong("grade." + partition.getGrade() + ".rows");
+        if (rows < 0) {
+            rows = gradeRowEstimates.getOrDefault(partition.getGrade(), -1L);
+        }
+        if (rows < 0) {
+            return Long.MAX_VALUE;
+        }
+        return (long) (rows / rowsPerMs()) / partition.getChunkCount();
+    }
+
+    /**
+     * Partitions sorted by descending estimated cost (LPT order).
+     * The sort is stable, so equal estimates keep their configured order.
+     */
+    public List<Partition> largestFirst(List<Partition> partitions) {
+        List<Partition> ordered = new ArrayList<>(partitions);
+        Map<Partition, Long> cost = new HashMap<>();
+        for (Partition partition : partitions) {
+            cost.put(partition, estimate(partition));
+        }
+        ordered.sort(Comparator.comparing((Partition p) -> cost.get(p)).reversed());
+        return ordered;
+    }
+
+    /**
+     * Start collecting the grade totals of a new run.
+     */
+    public void startRun() {
+        currentGradeTotals.clear();
+    }
+
+    /**
+     * Record the outcome of one partition of the current run. Only
+     * partitions covering their full slice of the grade should be recorded.
+     */
+    public void record(Partition partition, long rows, long executionTimeMs) {
+        stats.setProperty("partition." + partition.getId() + ".rows", String.valueOf(rows));
+        stats.setProperty("partition." + partition.getId() + ".ms", String.valueOf(executionTimeMs));
+
+        long[] totals = currentGradeTotals.computeIfAbsent(partition.getGrade(), g -> new long[3]);
+        totals[0] += rows;
+        totals[1] += executionTimeMs;
+        totals[2]++;
+        if (totals[2] == partition.getChunkCount()) {
+            stats.setProperty("grade." + partition.getGrade() + ".rows", String.valueOf(totals[0]));
+            stats.setProperty("grade." + partition.getGrade() + ".ms", String.valueOf(totals[1]));
+        }
+    }
+
+    /**
+     * Write the stats file, replacing the previous one atomically.
+     */
+    public void save() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp)) {
+                stats.store(writer, "ParallelQueryExecutor partition statistics");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not save stats file " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Observed throughput over all recorded grades; 1 when there is no history,
+     * which makes estimates plain row counts.
+     */
+    private double rowsPerMs() {
+        long rows = 0;
+        long ms = 0;
+        for (String key : stats.stringPropertyNames()) {
+            if (key.startsWith("grade.") && key.endsWith(".ms")) {
+                String prefix = key.substring(0, key.length() - ".ms".length());
+                long gradeRows = getLong(prefix + ".rows");
+                if (gradeRows >= 0) {
+                    rows += gradeRows;
+                    ms += getLong(key);
+                }
+            }
+        }
+        return rows > 0 && ms > 0 ? (double) rows / ms : 1.0;
+    }
+
+    private long getLong(String key) {
+        String value = stats.getProperty(key);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
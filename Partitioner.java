@@ -0,0 +1,204 @@
+package com.example.executor;
+
+import com.example.config.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a grade's scan into partitions that can run concurrently.
+ * <p>
+ * Implementations may probe the table (min/max, row counts) through the
+ * supplied connection. Partitions of one grade must be disjoint and together
+ * cover every row of the grade.
+ */
+public interface Partitioner {
+
+    List<Partition> partition(int grade, Connection conn) throws SQLException;
+
+    /**
+     * Build the partitioner selected by {@code executor.partitioner}:
+     * {@code none} (default), {@code id-range}, {@code date-window} or {@code hash}.
+     * Splitting is sized by {@code executor.partition.target-rows} and capped at
+     * {@code executor.partition.max-chunks}.
+     */
+    static Partitioner fromConfig() {
+        String type = DatabaseConfig.getProperty("executor.partitioner", "none").trim().toLowerCase();
+        int targetRows = DatabaseConfig.getIntProperty("executor.partition.target-rows", 250_000);
+        int maxChunks = DatabaseConfig.getIntProperty("executor.partition.max-chunks", 16);
+
+        return switch (type) {
+            case "none" -> new WholeGrade();
+            case "id-range" -> new IdRange(targetRows, maxChunks);
+            case "date-window" -> new DateWindow(targetRows, maxChunks);
+            case "hash" -> new HashBucket(targetRows, maxChunks);
+            default -> throw new IllegalArgumentException("Unknown executor.partitioner: " + type);
+        };
+    }
+
+    /**
+     * Number of chunks for a grade of the given size.
+     */
+    static int chunksFor(long rowCount, int targetRows, int maxChunks) {
+        if (rowCount <= targetRows) {
+            return 1;
+        }
+        long chunks = (rowCount + targetRows - 1) / targetRows;
+        return (int) Math.min(chunks, Math.max(1, maxChunks));
+    }
+
+    /**
+     * One partition per grade - the original behaviour.
+     */
+    class WholeGrade implements Partitioner {
+        @Override
+        public List<Partition> partition(int grade, Connection conn) {
+            return List.of(Partition.wholeGrade(grade));
+        }
+    }
+
+    /**
+     * Contiguous {@code id} ranges between the grade's MIN(id) and MAX(id).
+     * Works well when ids are roughly uniformly distributed.
+     */
+    class IdRange implements Partitioner {
+        private final int targetRows;
+        private final int maxChunks;
+
+        public IdRange(int targetRows, int maxChunks) {
+            this.targetRows = targetRows;
+            this.maxChunks = maxChunks;
+        }
+
+        @Override
+        public List<Partition> partition(int grade, Connection conn) throws SQLException {
+            String sql = "SELECT MIN(id), MAX(id), COUNT(*) FROM main_data a WHERE a.grade = ?";
+            long min, max, count;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, grade);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    min = rs.getLong(1);
+                    max = rs.getLong(2);
+                    count = rs.getLong(3);
+                }
+            }
+
+            int chunks = (int) Math.min(chunksFor(count, targetRows, maxChunks), max - min + 1);
+            if (chunks <= 1) {
+                return List.of(Partition.wholeGrade(grade));
+            }
+
+            List<Partition> partitions = new ArrayList<>(chunks);
+            long step = (max - min + 1) / chunks;
+            for (int i = 0; i < chunks; i++) {
+                long lo = min + i * step;
+                if (i == chunks - 1) {
+                    partitions.add(new Partition(grade, i, chunks, "a.id >= ? AND a.id <= ?", lo, max));
+                } else {
+                    partitions.add(new Partition(grade, i, chunks, "a.id >= ? AND a.id < ?", lo, lo + step));
+                }
+            }
+            return partitions;
+        }
+    }
+
+    /**
+     * Equal-width {@code created_date} windows. Rows with a null
+     * {@code created_date} go to the first window.
+     */
+    class DateWindow implements Partitioner {
+        private final int targetRows;
+        private final int maxChunks;
+
+        public DateWindow(int targetRows, int maxChunks) {
+            this.targetRows = targetRows;
+            this.maxChunks = maxChunks;
+        }
+
+        @Override
+        public List<Partition> partition(int grade, Connection conn) throws SQLException {
+            String sql = "SELECT MIN(created_date), MAX(created_date), COUNT(*) FROM main_data a WHERE a.grade = ?";
+            Timestamp min, max;
+            long count;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, grade);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    min = rs.getTimestamp(1);
+                    max = rs.getTimestamp(2);
+                    count = rs.getLong(3);
+                }
+            }
+
+            if (min == null || max == null || !max.after(min)) {
+                return List.of(Partition.wholeGrade(grade));
+            }
+            int chunks = chunksFor(count, targetRows, maxChunks);
+            if (chunks <= 1) {
+                return List.of(Partition.wholeGrade(grade));
+            }
+
+            List<Partition> partitions = new ArrayList<>(chunks);
+            long start = min.getTime();
+            long step = Math.max(1, (max.getTime() - start) / chunks);
+            for (int i = 0; i < chunks; i++) {
+                Timestamp lo = new Timestamp(start + i * step);
+                Timestamp hi = new Timestamp(start + (i + 1) * step);
+                if (i == 0) {
+                    partitions.add(new Partition(grade, i, chunks,
+                        "(a.created_date < ? OR a.created_date IS NULL)", hi));
+                } else if (i == chunks - 1) {
+                    partitions.add(new Partition(grade, i, chunks, "a.created_date >= ?", lo));
+                } else {
+                    partitions.add(new Partition(grade, i, chunks,
+                        "a.created_date >= ? AND a.created_date < ?", lo, hi));
+                }
+            }
+            return partitions;
+        }
+    }
+
+    /**
+     * {@code MOD(id, n)} buckets. Evenly sized regardless of how ids are
+     * distributed, at the cost of each chunk scanning the whole grade.
+     */
+    class HashBucket implements Partitioner {
+        private final int targetRows;
+        private final int maxChunks;
+
+        public HashBucket(int targetRows, int maxChunks) {
+            this.targetRows = targetRows;
+            this.maxChunks = maxChunks;
+        }
+
+        @Override
+        public List<Partition> partition(int grade, Connection conn) throws SQLException {
+            String sql = "SELECT COUNT(*) FROM main_data a WHERE a.grade = ?";
+            long count;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, grade);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    count = rs.getLong(1);
+                }
+            }
+
+            int chunks = chunksFor(count, targetRows, maxChunks);
+            if (chunks <= 1) {
+                return List.of(Partition.wholeGrade(grade));
+            }
+
+            List<Partition> partitions = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                partitions.add(new Partition(grade, i, chunks, "MOD(ABS(a.id), ?) = ?", chunks, i));
+            }
+            return partitions;
+        }
+    }
+}
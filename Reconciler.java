@@ -0,0 +1,496 @@
+package com.example.executor;
+
+import com.example.config.DatabaseConfig;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the rows that differ between two copies of a table, e.g. a legacy
+ * and a modernized load, without transferring either in full.
+ * <p>
+ * Each side is summarized per key range by row count and the sum of a
+ * per-row hash. The whole key range is split into {@code fanout} buckets by
+ * one {@code GROUP BY} query per side; buckets whose count or hash sum differ
+ * are split the same way again, Merkle-style, until a bucket holds at most
+ * {@code leafRows} rows. Only then are its keys and row hashes fetched and
+ * merged to name the differing rows. Ranges are narrowed one level at a time,
+ * with all queries of a level running in parallel on both sides, so a
+ * mismatch in millions of rows costs a few aggregate queries per level plus
+ * fetches of the small ranges around the differences.
+ * <p>
+ * Keys must be integers. The hash is a SQL expression over alias {@code r},
+ * given per side so each database can use its own functions; the two must
+ * give the same value for the same row. Differences whose hashes
+ * cancel out in a sum are possible in principle but practically never occur.
+ */
+public class Reconciler {
+
+    /** How a key differs between the two sides. */
+    public enum DifferenceType {
+        /** In the legacy source only. */
+        MISSING,
+        /** In the modern source only. */
+        EXTRA,
+        /** On both sides with a different row hash. */
+        CHANGED
+    }
+
+    /**
+     * Receives differences as they are found, on the thread that called
+     * {@link #reconcile(DifferenceSink)}.
+     */
+    @FunctionalInterface
+    public interface DifferenceSink {
+        void accept(DifferenceType type, long key) throws Exception;
+    }
+
+    private static final Pattern COLUMN = Pattern.compile("[A-Za-z_][A-Za-z0-9_$#]*");
+
+    private final DataSource legacy;
+    private final DataSource modern;
+    private final String legacySql;
+    private final String modernSql;
+    private final String key;
+    private final String legacyHash;
+    private final String modernHash;
+    private final int fanout;
+    private final int leafRows;
+    private final int threads;
+
+    /**
+     * @param legacySql  query returning the legacy rows, wrapped as {@code (<sql>) r}
+     * @param modernSql  the same for the modern side
+     * @param key        integer key column
+     * @param legacyHash per-row hash expression over alias {@code r} on the legacy side
+     * @param modernHash the same for the modern side, giving equal values for equal rows
+     * @param threads    concurrent queries per side
+     */
+    public Reconciler(DataSource legacy, DataSource modern, String legacySql, String modernSql, String key,
+                      String legacyHash, String modernHash, int fanout, int leafRows, int threads) {
+        if (!COLUMN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid key column: " + key);
+        }
+        if (fanout < 2) {
+            throw new IllegalArgumentException("Fan-out must be at least 2: " + fanout);
+        }
+        this.legacy = legacy;
+        this.modern = modern;
+        this.legacySql = legacySql.trim();
+        this.modernSql = modernSql.trim();
+        this.key = key;
+        this.legacyHash = legacyHash.trim();
+        this.modernHash = modernHash.trim();
+        this.fanout = fanout;
+        this.leafRows = Math.max(1, leafRows);
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Reconciler configured by {@code executor.reconcile.*}. The query and the
+     * hash can be overridden per side with {@code legacy-sql} /
+     * {@code modern-sql} and {@code legacy-hash} / {@code modern-hash}.
+     */
+    public static Reconciler fromConfig(DataSource legacy, DataSource modern) {
+        String sql = DatabaseConfig.getProperty("executor.reconcile.sql", "SELECT * FROM main_data");
+        String hash = DatabaseConfig.getProperty("executor.reconcile.hash",
+            "ORA_HASH(r.id || '|' || r.grade || '|' || r.name || '|' || "
+                + "TO_CHAR(r.created_date, 'YYYY-MM-DD HH24:MI:SS'))");
+        return new Reconciler(legacy, modern,
+            DatabaseConfig.getProperty("executor.reconcile.legacy-sql", sql),
+            DatabaseConfig.getProperty("executor.reconcile.modern-sql", sql),
+            DatabaseConfig.getProperty("executor.reconcile.key", "id").trim(),
+            DatabaseConfig.getProperty("executor.reconcile.legacy-hash", hash),
+            DatabaseConfig.getProperty("executor.reconcile.modern-hash", hash),
+            DatabaseConfig.getIntProperty("executor.reconcile.fanout", 16),
+            DatabaseConfig.getIntProperty("executor.reconcile.leaf-rows", 1000),
+            DatabaseConfig.getIntProperty("executor.reconcile.threads", 4));
+    }
+
+    /**
+     * Compare both sides and report every differing key.
+     */
+    public Summary reconcile(DifferenceSink sink) throws Exception {
+        long start = System.currentTimeMillis();
+        Summary summary = new Summary();
+        ExecutorService legacyPool = newPool("legacy");
+        ExecutorService modernPool = newPool("modern");
+        try {
+            Side legacySide = new Side(legacy, legacySql, legacyHash, legacyPool, summary);
+            Side modernSide = new Side(modern, modernSql, modernHash, modernPool, summary);
+            Future<Bucket> legacyTotal = legacySide.submit(Side::total);
+            Future<Bucket> modernTotal = modernSide.submit(Side::total);
+            Bucket left = get(legacyTotal);
+            Bucket right = get(modernTotal);
+            summary.legacyRows = left.count + left.nullKeys;
+            summary.modernRows = right.count + right.nullKeys;
+            summary.legacyNullKeys = left.nullKeys;
+            summary.modernNullKeys = right.nullKeys;
+            System.out.printf("Reconciling on %s: legacy %,d rows, modern %,d rows%n",
+                key, summary.legacyRows, summary.modernRows);
+            if (left.nullKeys > 0 || right.nullKeys > 0) {
+                System.err.printf("Rows with a NULL %s are not compared: legacy %,d, modern %,d%n",
+                    key, left.nullKeys, right.nullKeys);
+            }
+
+            List<Range> level = new ArrayList<>();
+            if (!left.matches(right)) {
+                long from = Math.min(left.count == 0 ? Long.MAX_VALUE : left.min, right.count == 0 ? Long.MAX_VALUE : right.min);
+                long to = Math.max(left.count == 0 ? Long.MIN_VALUE : left.max, right.count == 0 ? Long.MIN_VALUE : right.max);
+                level.add(new Range(from, to, left, right));
+            }
+            while (!level.isEmpty()) {
+                summary.levels++;
+                List<Range> leaves = new ArrayList<>();
+                List<Range> split = new ArrayList<>();
+                for (Range range : level) {
+                    (range.isLeaf() ? leaves : split).add(range);
+                }
+                compareLeaves(leaves, legacySide, modernSide, sink, summary);
+                level = narrow(split, legacySide, modernSide);
+                System.out.printf("  Level %d: %d ranges compared row by row, %d narrowed to %d mismatched ranges%n",
+                    summary.levels, leaves.size(), split.size(), level.size());
+            }
+        } finally {
+            legacyPool.shutdownNow();
+            modernPool.shutdownNow();
+        }
+        summary.elapsedMs = System.currentTimeMillis() - start;
+        return summary;
+    }
+
+    /**
+     * Split each range into buckets on both sides and keep the buckets that differ.
+     */
+    private List<Range> narrow(List<Range> ranges, Side legacySide, Side modernSide) throws Exception {
+        List<Future<Map<Long, Bucket>>> left = new ArrayList<>();
+        List<Future<Map<Long, Bucket>>> right = new ArrayList<>();
+        for (Range range : ranges) {
+            left.add(legacySide.submit(side -> side.buckets(range)));
+            right.add(modernSide.submit(side -> side.buckets(range)));
+        }
+        List<Range> mismatched = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            Range range = ranges.get(i);
+            Map<Long, Bucket> legacyBuckets = get(left.get(i));
+            Map<Long, Bucket> modernBuckets = get(right.get(i));
+            TreeSet<Long> indexes = new TreeSet<>(legacyBuckets.keySet());
+            indexes.addAll(modernBuckets.keySet());
+            for (long index : indexes) {
+                Bucket l = legacyBuckets.getOrDefault(index, Bucket.EMPTY);
+                Bucket r = modernBuckets.getOrDefault(index, Bucket.EMPTY);
+                if (!l.matches(r)) {
+                    mismatched.add(range.bucket(index, l, r));
+                }
+            }
+        }
+        return mismatched;
+    }
+
+    /**
+     * Fetch keys and row hashes of each range on both sides and merge them.
+     */
+    private void compareLeaves(List<Range> ranges, Side legacySide, Side modernSide, DifferenceSink sink,
+                               Summary summary) throws Exception {
+        List<Future<long[][]>> left = new ArrayList<>();
+        List<Future<long[][]>> right = new ArrayList<>();
+        for (Range range : ranges) {
+            left.add(legacySide.submit(side -> side.rows(range)));
+            right.add(modernSide.submit(side -> side.rows(range)));
+        }
+        for (int i = 0; i < ranges.size(); i++) {
+            long[][] l = get(left.get(i));
+            long[][] r = get(right.get(i));
+            summary.rowsFetched.add(l[0].length + r[0].length);
+            int a = 0;
+            int b = 0;
+            while (a < l[0].length || b < r[0].length) {
+                if (b == r[0].length || (a < l[0].length && l[0][a] < r[0][b])) {
+                    summary.report(sink, DifferenceType.MISSING, l[0][a++]);
+                } else if (a == l[0].length || r[0][b] < l[0][a]) {
+                    summary.report(sink, DifferenceType.EXTRA, r[0][b++]);
+                } else {
+                    if (l[1][a] != r[1][b]) {
+                        summary.report(sink, DifferenceType.CHANGED, l[0][a]);
+                    }
+                    a++;
+                    b++;
+                }
+            }
+        }
+    }
+
+    private ExecutorService newPool(String side) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "pqe-reconcile-" + side + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static <T> T get(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Key range {@code [from, to]} with both sides' summaries from the level
+     * above. The upper bound is inclusive so a range can end at
+     * {@code Long.MAX_VALUE}; offsets from {@code from} are unsigned, so a
+     * range may span more than {@code Long.MAX_VALUE} keys.
+     */
+    private final class Range {
+        final long from;
+        final long to;
+        final Bucket legacy;
+        final Bucket modern;
+
+        Range(long from, long to, Bucket legacy, Bucket modern) {
+            this.from = from;
+            this.to = to;
+            this.legacy = legacy;
+            this.modern = modern;
+        }
+
+        boolean isLeaf() {
+            return Math.max(legacy.count, modern.count) <= leafRows || Long.compareUnsigned(to - from, fanout) < 0;
+        }
+
+        /** Keys per bucket, unsigned: ceil(keys / fanout) with keys = to - from + 1. */
+        long width() {
+            return Long.divideUnsigned(to - from, fanout) + 1;
+        }
+
+        /** Bucket {@code index} of {@link #width()} keys, clipped to this range. */
+        Range bucket(long index, Bucket legacy, Bucket modern) {
+            long offset = index * width();
+            long start = from + offset;
+            boolean last = Long.compareUnsigned(width() - 1, to - from - offset) >= 0;
+            return new Range(start, last ? to : start + width() - 1, legacy, modern);
+        }
+
+        /** SQL predicate selecting the keys of this range. */
+        String predicate() {
+            return "r." + key + " >= " + from + " AND r." + key + " <= " + to;
+        }
+    }
+
+    /**
+     * Row count and hash sum of a key range, plus its key bounds for totals.
+     */
+    private static final class Bucket {
+        static final Bucket EMPTY = new Bucket(0, BigDecimal.ZERO, 0, 0, 0);
+
+        final long count;
+        final BigDecimal hashSum;
+        final long min;
+        final long max;
+        /** Rows left out of count and hash sum because their key is NULL; totals only. */
+        final long nullKeys;
+
+        Bucket(long count, BigDecimal hashSum, long min, long max, long nullKeys) {
+            this.count = count;
+            this.hashSum = hashSum == null ? BigDecimal.ZERO : hashSum;
+            this.min = min;
+            this.max = max;
+            this.nullKeys = nullKeys;
+        }
+
+        boolean matches(Bucket other) {
+            return count == other.count && hashSum.compareTo(other.hashSum) == 0;
+        }
+    }
+
+    /**
+     * One database with its query, its hash and its own pool, so waiting for one side
+     * never holds up queries on the other.
+     */
+    private final class Side {
+        final DataSource dataSource;
+        final String sql;
+        final String hash;
+        final ExecutorService pool;
+        final Summary summary;
+
+        Side(DataSource dataSource, String sql, String hash, ExecutorService pool, Summary summary) {
+            this.dataSource = dataSource;
+            this.sql = sql;
+            this.hash = hash;
+            this.pool = pool;
+            this.summary = summary;
+        }
+
+        <T> Future<T> submit(SideQuery<T> query) {
+            return pool.submit((Callable<T>) () -> query.run(this));
+        }
+
+        /**
+         * Count, hash sum and key bounds of the rows with a key; rows with a
+         * NULL key can never fall into a range, so they are only counted.
+         */
+        Bucket total() throws SQLException {
+            String total = "SELECT COUNT(r." + key + "), SUM(CASE WHEN r." + key + " IS NOT NULL THEN " + hash
+                + " END), MIN(r." + key + "), MAX(r." + key + "), COUNT(*) - COUNT(r." + key + ") FROM (\n"
+                + sql + "\n) r";
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(total);
+                 ResultSet rs = stmt.executeQuery()) {
+                summary.queries.increment();
+                rs.next();
+                return new Bucket(rs.getLong(1), rs.getBigDecimal(2), rs.getLong(3), rs.getLong(4), rs.getLong(5));
+            }
+        }
+
+        /**
+         * Buckets of {@code range.width()} keys, by index from the start of the range.
+         * Bounds are inlined so the bucket expression is identical in the
+         * select list and the GROUP BY.
+         */
+        Map<Long, Bucket> buckets(Range range) throws SQLException {
+            String bucket = "FLOOR((r." + key + " - (" + range.from + ")) / " + Long.toUnsignedString(range.width()) + ")";
+            String query = "SELECT " + bucket + ", COUNT(*), SUM(" + hash + ") FROM (\n" + sql + "\n) r"
+                + " WHERE " + range.predicate()
+                + " GROUP BY " + bucket;
+            Map<Long, Bucket> buckets = new HashMap<>();
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(query);
+                 ResultSet rs = stmt.executeQuery()) {
+                summary.queries.increment();
+                while (rs.next()) {
+                    buckets.put(rs.getLong(1), new Bucket(rs.getLong(2), rs.getBigDecimal(3), 0, 0, 0));
+                }
+            }
+            return buckets;
+        }
+
+        /**
+         * Keys and row hashes of a range, ordered by key and hash.
+         */
+        long[][] rows(Range range) throws SQLException {
+            String query = "SELECT r." + key + ", " + hash + " FROM (\n" + sql + "\n) r"
+                + " WHERE " + range.predicate() + " ORDER BY 1, 2";
+            List<long[]> rows = new ArrayList<>();
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setFetchSize(Math.min(10_000, leafRows * 2));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    summary.queries.increment();
+                    while (rs.next()) {
+                        rows.add(new long[] {rs.getLong(1), rs.getLong(2)});
+                    }
+                }
+            }
+            long[][] columns = new long[2][rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                columns[0][i] = rows.get(i)[0];
+                columns[1][i] = rows.get(i)[1];
+            }
+            return columns;
+        }
+    }
+
+    @FunctionalInterface
+    private interface SideQuery<T> {
+        T run(Reconciler.Side side) throws Exception;
+    }
+
+    /**
+     * Outcome of {@link #reconcile(DifferenceSink)}.
+     */
+    public static class Summary {
+        private final LongAdder missing = new LongAdder();
+        private final LongAdder extra = new LongAdder();
+        private final LongAdder changed = new LongAdder();
+        private final LongAdder queries = new LongAdder();
+        private final LongAdder rowsFetched = new LongAdder();
+        private long legacyRows;
+        private long modernRows;
+        private long legacyNullKeys;
+        private long modernNullKeys;
+        private int levels;
+        private long elapsedMs;
+
+        private void report(DifferenceSink sink, DifferenceType type, long key) throws Exception {
+            switch (type) {
+                case MISSING -> missing.increment();
+                case EXTRA -> extra.increment();
+                case CHANGED -> changed.increment();
+            }
+            sink.accept(type, key);
+        }
+
+        public long getLegacyRows() {
+            return legacyRows;
+        }
+
+        public long getModernRows() {
+            return modernRows;
+        }
+
+        /** Legacy rows with a NULL key, which cannot be compared. */
+        public long getLegacyNullKeys() {
+            return legacyNullKeys;
+        }
+
+        /** Modern rows with a NULL key, which cannot be compared. */
+        public long getModernNullKeys() {
+            return modernNullKeys;
+        }
+
+        /** Keys only in the legacy source. */
+        public long getMissing() {
+            return missing.sum();
+        }
+
+        /** Keys only in the modern source. */
+        public long getExtra() {
+            return extra.sum();
+        }
+
+        public long getChanged() {
+            return changed.sum();
+        }
+
+        public long getQueries() {
+            return queries.sum();
+        }
+
+        public long getRowsFetched() {
+            return rowsFetched.sum();
+        }
+
+        @Override
+        public String toString() {
+            String nullKeys = legacyNullKeys == 0 && modernNullKeys == 0 ? ""
+                : String.format(", NULL keys not compared: legacy %,d, modern %,d", legacyNullKeys, modernNullKeys);
+            return String.format("legacy %,d rows, modern %,d rows: %,d missing, %,d extra, %,d changed%s "
+                    + "(%d levels, %d queries, %,d rows fetched, %d ms)",
+                legacyRows, modernRows, getMissing(), getExtra(), getChanged(), nullKeys, levels, getQueries(),
+                getRowsFetched(), elapsedMs);
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package com.example.executor;
+
+import com.example.config.DatabaseConfig;
+import com.example.model.ResultData;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Local on-disk cache of partition results, shared by all runs and processes
+ * using the same directory.
+ * <p>
+ * An entry is keyed by a fingerprint of the partition's normalized SQL, its
+ * bind values and the large text handling. Its {@code <key>.meta} holds the
+ * freshness probe taken when it was filled, {@code COUNT(*)} and
+ * {@code MAX(created_date)} over the partition's query, and names the
+ * columnar extract with the rows ({@code <key>.<id>.pqx}). Every fill writes
+ * a new extract and then renames its meta file into place, so that rename is
+ * the single commit point and a reader never pairs one fill's probe with
+ * another fill's rows.
+ * <p>
+ * Before a partition runs the probe is repeated; if it still matches and the
+ * entry is younger than the maximum age, the rows are replayed from disk.
+ * Otherwise the partition is fetched and written through to a new entry.
+ * Updates that change neither the count nor the latest date are only noticed
+ * once the entry expires. The probe aggregates the whole partition query, so
+ * without an index covering the partition predicate and the probe column the
+ * database still scans the partition; a hit saves the transfer and mapping
+ * of the rows, not the scan.
+ * <p>
+ * Hits touch the meta file. After each fill the least recently used entries
+ * are deleted until the cache fits its size limit.
+ */
+public class ResultCache {
+
+    private static final Pattern COLUMN = Pattern.compile("[A-Za-z_][A-Za-z0-9_$#]*");
+    private static final int ROWS_PER_BLOCK = 65_536;
+
+    /** Extracts no meta file names are only deleted after this, so in-flight fills keep theirs. */
+    private static final long ORPHAN_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final String probeColumn;
+
+    public ResultCache(Path directory, long maxBytes, long maxAgeMillis, String probeColumn) throws IOException {
+        if (!COLUMN.matcher(probeColumn).matches()) {
+            throw new IllegalArgumentException("Invalid cache probe column: " + probeColumn);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes <= 0 ? Long.MAX_VALUE : maxBytes;
+        this.maxAgeMillis = maxAgeMillis <= 0 ? Long.MAX_VALUE : maxAgeMillis;
+        this.probeColumn = probeColumn;
+    }
+
+    /**
+     * Cache configured by {@code executor.cache.*}, or null when
+     * {@code executor.cache} is off.
+     */
+    public static ResultCache fromConfig() throws IOException {
+        if (!Boolean.parseBoolean(DatabaseConfig.getProperty("executor.cache", "false").trim())) {
+            return null;
+        }
+        return new ResultCache(
+            Path.of(DatabaseConfig.getProperty("executor.cache.dir", "cache").trim()),
+            DatabaseConfig.getIntProperty("executor.cache.max-size-mb", 2048) * 1024L * 1024L,
+            TimeUnit.MINUTES.toMillis(DatabaseConfig.getIntProperty("executor.cache.max-age-minutes", 60)),
+            DatabaseConfig.getProperty("executor.cache.probe-column", "created_date").trim());
+    }
+
+    /**
+     * Run the freshness probe for a partition and look up its entry.
+     *
+     * @return the entry, or null if the probe failed, e.g. because the query
+     *         has no probe column; such partitions are not cached
+     */
+    Entry lookup(Connection conn, ExtractJob job, Partition partition, DeadlineWatchdog watchdog)
+            throws SQLException, PartitionCancelledException {
+        String sql = job.sqlFor(partition);
+        String probe = "SELECT COUNT(*), MAX(p." + probeColumn + ") FROM (\n" + sql + "\n) p";
+        long count;
+        Timestamp latest;
+        try (PreparedStatement stmt = conn.prepareStatement(probe)) {
+            job.bind(stmt, partition);
+            DeadlineWatchdog.Guard guard = watchdog.start(stmt, partition);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                count = rs.getLong(1);
+                latest = rs.getTimestamp(2);
+            } finally {
+                guard.close();
+            }
+        } catch (SQLException e) {
+            if (watchdog.isJobExpired()) {
+                throw e;
+            }
+            System.err.println("Not caching " + partition + ", freshness probe failed: " + e.getMessage());
+            return null;
+        }
+        String normalized = normalize(sql);
+        String key = fingerprint(normalized, job.bindValues(partition), String.valueOf(job.largeText()));
+        return new Entry(key, normalized, count, latest == null ? ColumnarResultBuffer.NULL_TIME : latest.getTime());
+    }
+
+    /**
+     * SQL with comments removed, whitespace collapsed and everything outside
+     * quotes lower-cased, so formatting changes do not miss the cache.
+     */
+    static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                int end = sql.indexOf(c, i + 1);
+                while (end >= 0 && end + 1 < sql.length() && sql.charAt(end + 1) == c) {
+                    end = sql.indexOf(c, end + 2);
+                }
+                end = end < 0 ? sql.length() : end + 1;
+                out.append(sql, i, end);
+                i = end;
+            } else if (sql.startsWith("--", i)) {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? sql.length() : end;
+            } else if (sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? sql.length() : end + 2;
+                appendSpace(out);
+            } else if (Character.isWhitespace(c)) {
+                appendSpace(out);
+                i++;
+            } else {
+                out.append(Character.toLowerCase(c));
+                i++;
+            }
+        }
+        return out.toString().trim();
+    }
+
+    private static void appendSpace(StringBuilder out) {
+        if (out.length() > 0 && out.charAt(out.length() - 1) != ' ') {
+            out.append(' ');
+        }
+    }
+
+    private static String fingerprint(String sql, List<Object> binds, String variant) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(sql.getBytes(StandardCharsets.UTF_8));
+            for (Object bind : binds) {
+                String typed = bind == null ? "\0null" : "\0" + bind.getClass().getName() + ":" + bind;
+                digest.update(typed.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update(("\0" + variant).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(), 0, 20);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Delete least recently used entries until the cache fits its limit.
+     * Other processes may evict concurrently, so missing files are ignored.
+     */
+    private synchronized void evict() throws IOException {
+        List<Path> metas = new ArrayList<>();
+        List<Path> extracts = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{pqx,meta}")) {
+            for (Path file : files) {
+                try {
+                    total += Files.size(file);
+                    (file.getFileName().toString().endsWith(".meta") ? metas : extracts).add(file);
+                } catch (NoSuchFileException e) {
+                    // Evicted by another process
+                }
+            }
+        }
+        // Extracts replaced by a newer fill, or left by a fill that never committed
+        List<Path> referenced = new ArrayList<>();
+        for (Path meta : metas) {
+            Path data = dataFile(meta);
+            if (data != null) {
+                referenced.add(data);
+            }
+        }
+        long orphanBefore = System.currentTimeMillis() - ORPHAN_MILLIS;
+        for (Path extract : extracts) {
+            if (!referenced.contains(extract) && lastUsed(extract).toMillis() < orphanBefore) {
+                long size = sizeOrZero(extract);
+                if (deleteQuietly(extract)) {
+                    total -= size;
+                }
+            }
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        metas.sort(Comparator.comparing(ResultCache::lastUsed));
+        for (Path meta : metas) {
+            if (total <= maxBytes) {
+                break;
+            }
+            Path data = dataFile(meta);
+            total -= sizeOrZero(meta) + (data == null ? 0 : sizeOrZero(data));
+            Files.deleteIfExists(meta);
+            if (data != null) {
+                Files.deleteIfExists(data);
+            }
+        }
+    }
+
+    private static Properties readMeta(Path meta) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(meta)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    /**
+     * Extract named by a meta file, or null if it is gone or names none.
+     */
+    private Path dataFile(Path meta) {
+        try {
+            String data = readMeta(meta).getProperty("data");
+            return data == null ? null : directory.resolve(data);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Delete a file that may still be open for replay, reporting whether it
+     * is gone.
+     */
+    private static boolean deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static FileTime lastUsed(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static long sizeOrZero(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "cache in " + directory;
+    }
+
+    /**
+     * A partition's cache slot with the probe just taken.
+     */
+    final class Entry {
+        private final String key;
+        private final String sql;
+        private final long count;
+        private final long latest;
+
+        private Entry(String key, String sql, long count, long latest) {
+            this.key = key;
+            this.sql = sql;
+            this.count = count;
+            this.latest = latest;
+        }
+
+        /**
+         * Reader over the cached rows if they match the probe and have not
+         * expired, else null. Marks the entry as recently used.
+         */
+        ColumnarExtractReader openIfFresh() throws IOException {
+            Path meta = directory.resolve(key + ".meta");
+            Properties properties;
+            try {
+                properties = readMeta(meta);
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+            String data = properties.getProperty("data");
+            long written = Long.parseLong(properties.getProperty("written", "0"));
+            if (Long.parseLong(properties.getProperty("count", "-1")) != count
+                    || Long.parseLong(properties.getProperty("latest", "0")) != latest
+                    || System.currentTimeMillis() - written > maxAgeMillis || data == null) {
+                return null;
+            }
+            try {
+                // Replaced or evicted since the meta was read: a miss, never another fill's rows
+                ColumnarExtractReader cached = new ColumnarExtractReader(directory.resolve(data));
+                Files.setLastModifiedTime(meta, FileTime.fromMillis(System.currentTimeMillis()));
+                return cached;
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Sink that passes rows on to {@code sink} and writes them to a new
+         * entry, which replaces the old one once the partition completes.
+         */
+        Fill fill(ResultSink sink) throws IOException {
+            return new Fill(this, sink);
+        }
+    }
+
+    /**
+     * Write-through sink filling one entry. Rows of an attempt that was
+     * retried would be cached twice, so an entry is only kept when the rows
+     * written match the partition's final count. The extract is moved to its
+     * own {@code <key>.<id>.pqx} first and committed by renaming the meta
+     * file that names it over the old one.
+     */
+    final class Fill implements ResultSink, AutoCloseable {
+        private final Entry entry;
+        private final ResultSink sink;
+        private final String id = UUID.randomUUID().toString();
+        private final Path temp;
+        private final ColumnarExtractWriter writer;
+        private final ResultSink encoder;
+        private int rows;
+        private boolean closed;
+
+        private Fill(Entry entry, ResultSink sink) throws IOException {
+            this.entry = entry;
+            this.sink = sink;
+            this.temp = directory.resolve(entry.key + "." + id + ".part");
+            this.writer = new ColumnarExtractWriter(temp, ROWS_PER_BLOCK);
+            this.encoder = writer.newPartition(entry.key);
+        }
+
+        @Override
+        public void accept(ResultData row) throws Exception {
+            sink.accept(row);
+            encoder.accept(row);
+            rows++;
+        }
+
+        @Override
+        public void partitionComplete(Partition partition, int recordCount) throws Exception {
+            sink.partitionComplete(partition, recordCount);
+            if (rows != recordCount) {
+                return;
+            }
+            encoder.partitionComplete(partition, recordCount);
+            writer.close();
+            closed = true;
+            Path data = directory.resolve(entry.key + "." + id + ".pqx");
+            Files.move(temp, data, StandardCopyOption.ATOMIC_MOVE);
+            Properties meta = new Properties();
+            meta.setProperty("data", data.getFileName().toString());
+            meta.setProperty("count", Long.toString(entry.count));
+            meta.setProperty("latest", Long.toString(entry.latest));
+            meta.setProperty("written", Long.toString(System.currentTimeMillis()));
+            meta.setProperty("rows", Integer.toString(rows));
+            meta.setProperty("sql", entry.sql);
+            Path metaFile = directory.resolve(entry.key + ".meta");
+            Path metaTemp = directory.resolve(entry.key + "." + id + ".meta.part");
+            try (Writer out = Files.newBufferedWriter(metaTemp)) {
+                meta.store(out, "Result cache entry for partition " + partition.getId());
+            }
+            Path previous = Files.exists(metaFile) ? dataFile(metaFile) : null;
+            Files.move(metaTemp, metaFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // Readers that already opened the old extract keep their handle;
+            // where the OS refuses, eviction removes it later
+            if (previous != null && !previous.equals(data)) {
+                deleteQuietly(previous);
+            }
+            evict();
+        }
+
+        /**
+         * Pass the discard on; the rows already written to the entry make it
+         * miss the final count, so it is not kept.
+         */
+        @Override
+        public boolean discard(Partition partition) throws Exception {
+            return sink.discard(partition);
+        }
+
+        /**
+         * Drop the partial entry unless the partition completed.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            writer.abort();
+        }
+    }
+}
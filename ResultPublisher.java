@@ -0,0 +1,137 @@
+package com.example.executor;
+
+import com.example.model.ResultData;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link Flow.Publisher} view of a streaming {@link ParallelQueryExecutor} run.
+ * <p>
+ * Fetch threads wait for subscriber demand before emitting a row, so a slow
+ * subscriber throttles the JDBC fetch instead of rows piling up on the heap.
+ * The run starts when a subscriber subscribes; only one subscriber is allowed.
+ * If any partition fails, the subscriber gets {@code onError} instead of
+ * {@code onComplete} once the others have finished.
+ */
+public class ResultPublisher implements Flow.Publisher<ResultData> {
+
+    private final ParallelQueryExecutor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    public ResultPublisher(ParallelQueryExecutor executor) {
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ResultData> subscriber) {
+        Objects.requireNonNull(subscriber);
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                public void request(long n) { }
+                public void cancel() { }
+            });
+            subscriber.onError(new IllegalStateException("ResultPublisher supports a single subscriber"));
+            return;
+        }
+
+        BackpressuredSubscription subscription = new BackpressuredSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+
+        Thread runner = new Thread(subscription::run, "result-publisher");
+        runner.setDaemon(true);
+        runner.start();
+    }
+
+    /**
+     * Subscription that doubles as the sink of the executor run.
+     * onNext calls are serialized by the lock, as required by the Flow contract.
+     */
+    private class BackpressuredSubscription implements Flow.Subscription, ResultSink {
+        private final Flow.Subscriber<? super ResultData> subscriber;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition demandAvailable = lock.newCondition();
+        private long demand;
+        private boolean cancelled;
+        private Throwable requestError;
+
+        BackpressuredSubscription(Flow.Subscriber<? super ResultData> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            lock.lock();
+            try {
+                if (n <= 0) {
+                    requestError = new IllegalArgumentException("request must be positive: " + n);
+                    cancelled = true;
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+                demandAvailable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            lock.lock();
+            try {
+                cancelled = true;
+                demandAvailable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void accept(ResultData row) throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (demand == 0 && !cancelled) {
+                    demandAvailable.await();
+                }
+                if (cancelled) {
+                    throw new CancellationException("Subscriber cancelled");
+                }
+                demand--;
+                subscriber.onNext(row);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void run() {
+            try {
+                List<Partition> failed = executor.streamPartitions(this);
+                finish(failed.isEmpty() ? null : new IllegalStateException("Partitions failed: " + failed));
+            } catch (Throwable t) {
+                finish(t);
+            }
+        }
+
+        private void finish(Throwable failure) {
+            lock.lock();
+            try {
+                if (requestError != null) {
+                    subscriber.onError(requestError);
+                } else if (cancelled) {
+                    return;
+                } else if (failure != null) {
+                    subscriber.onError(failure);
+                } else {
+                    subscriber.onComplete();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.executor;
+
+import com.example.model.ResultData;
+
+/**
+ * Receives rows from {@link ParallelQueryExecutor} as they are fetched.
+ * <p>
+ * {@link #accept(ResultData)} is called directly from the JDBC fetch threads,
+ * so a sink that blocks throttles the fetch and nothing is buffered in between.
+ * A single sink is shared by all partitions, so implementations must be thread-safe.
+ */
+@FunctionalInterface
+public interface ResultSink {
+
+    /**
+     * Consume one fetched row.
+     */
+    void accept(ResultData row) throws Exception;
+
+    /**
+     * Consume a row whose large text column is streamed (see
+     * {@link LargeTextColumn}) rather than set on the row. The default reads
+     * the value into the row and calls {@link #accept(ResultData)}; sinks
+     * that only write the value out can copy it from {@code text.reader()}.
+     */
+    default void accept(ResultData row, LargeTextColumn.Text text) throws Exception {
+        text.readInto(row);
+        accept(row);
+    }
+
+    /**
+     * Called on the fetch thread once all rows of a partition have been delivered.
+     */
+    default void partitionComplete(Partition partition, int recordCount) throws Exception {
+    }
+
+    /**
+     * Drop the rows delivered for {@code partition} so far, before it is run
+     * again from the start (see {@code executor.partition-retries}). Called on
+     * the fetch thread. Sinks that cannot take rows back return false, and
+     * the partition is not retried.
+     */
+    default boolean discard(Partition partition) throws Exception {
+        return false;
+    }
+}
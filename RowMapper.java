@@ -0,0 +1,52 @@
+package com.example.executor;
+
+import java.lang.invoke.MethodHandles;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a {@link ResultSet} to an object.
+ * <p>
+ * {@link #forType(Class, ResultSetMetaData)} builds a mapper from the
+ * statement's metadata once: each column label is matched to a record
+ * component or a {@code setXxx} method ignoring case and underscores
+ * ({@code CREATED_DATE} matches {@code createdDate}), and the matches are
+ * bound into a single {@code MethodHandle} that reads columns by index.
+ * No names are looked up and no reflection happens per row. Columns without
+ * a matching property are not read.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * Map the row the result set is positioned on.
+     */
+    T map(ResultSet rs) throws SQLException;
+
+    /**
+     * Mapper for a public record, or a public class with a public no-arg
+     * constructor and setters. Mappers are cached per type and column list.
+     */
+    static <T> RowMapper<T> forType(Class<T> type, ResultSetMetaData metaData) throws SQLException {
+        return forType(MethodHandles.publicLookup(), type, metaData);
+    }
+
+    /**
+     * Like {@link #forType(Class, ResultSetMetaData)}, but never reading the
+     * given columns; their properties keep their defaults.
+     */
+    static <T> RowMapper<T> forType(Class<T> type, ResultSetMetaData metaData, String... skippedColumns)
+            throws SQLException {
+        return RowMapperFactory.mapper(MethodHandles.publicLookup(), type, metaData, skippedColumns);
+    }
+
+    /**
+     * Like {@link #forType(Class, ResultSetMetaData)}, resolving constructors
+     * and setters with the caller's {@code lookup} so non-public types work.
+     */
+    static <T> RowMapper<T> forType(MethodHandles.Lookup lookup, Class<T> type, ResultSetMetaData metaData)
+            throws SQLException {
+        return RowMapperFactory.mapper(lookup, type, metaData);
+    }
+}
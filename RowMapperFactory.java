@@ -0,0 +1,275 @@
+package com.example.executor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds {@link RowMapper}s out of {@code MethodHandle}s.
+ * <p>
+ * Every mapped column becomes a {@code ResultSet} getter with the column
+ * index bound in, feeding either a record constructor argument or a setter.
+ * The handles are combined into one {@code (ResultSet)Object} handle that
+ * the mapper calls with {@code invokeExact}.
+ */
+final class RowMapperFactory {
+
+    private static final Map<Key, RowMapper<?>> CACHE = new ConcurrentHashMap<>();
+
+    /** Typed getters; anything else is read with {@code getObject(int, Class)}. */
+    private static final Map<Class<?>, String> GETTERS = Map.ofEntries(
+        Map.entry(long.class, "getLong"),
+        Map.entry(int.class, "getInt"),
+        Map.entry(short.class, "getShort"),
+        Map.entry(byte.class, "getByte"),
+        Map.entry(double.class, "getDouble"),
+        Map.entry(float.class, "getFloat"),
+        Map.entry(boolean.class, "getBoolean"),
+        Map.entry(String.class, "getString"),
+        Map.entry(BigDecimal.class, "getBigDecimal"),
+        Map.entry(Timestamp.class, "getTimestamp"),
+        Map.entry(java.sql.Date.class, "getDate"),
+        Map.entry(Time.class, "getTime"),
+        Map.entry(byte[].class, "getBytes"));
+
+    /**
+     * Setter parameter types to prefer for a JDBC type, best first, when a
+     * property has overloaded setters. Oracle's {@code BINARY_FLOAT} and
+     * {@code BINARY_DOUBLE} report vendor codes 100 and 101.
+     */
+    private static final Map<Integer, List<Class<?>>> PREFERRED = Map.ofEntries(
+        Map.entry(Types.BIGINT, List.of(long.class, Long.class, BigDecimal.class)),
+        Map.entry(Types.INTEGER, List.of(int.class, Integer.class, long.class, Long.class)),
+        Map.entry(Types.SMALLINT, List.of(short.class, Short.class, int.class, Integer.class)),
+        Map.entry(Types.TINYINT, List.of(byte.class, Byte.class, short.class, int.class)),
+        Map.entry(Types.NUMERIC, List.of(BigDecimal.class, long.class, Long.class, double.class, Double.class)),
+        Map.entry(Types.DECIMAL, List.of(BigDecimal.class, long.class, Long.class, double.class, Double.class)),
+        Map.entry(Types.DOUBLE, List.of(double.class, Double.class, BigDecimal.class)),
+        Map.entry(Types.FLOAT, List.of(double.class, Double.class, BigDecimal.class)),
+        Map.entry(Types.REAL, List.of(float.class, Float.class, double.class, Double.class)),
+        Map.entry(100, List.of(float.class, Float.class, double.class, Double.class)),
+        Map.entry(101, List.of(double.class, Double.class)),
+        Map.entry(Types.CHAR, List.of(String.class)),
+        Map.entry(Types.VARCHAR, List.of(String.class)),
+        Map.entry(Types.NCHAR, List.of(String.class)),
+        Map.entry(Types.NVARCHAR, List.of(String.class)),
+        Map.entry(Types.LONGVARCHAR, List.of(String.class)),
+        Map.entry(Types.CLOB, List.of(String.class)),
+        Map.entry(Types.NCLOB, List.of(String.class)),
+        Map.entry(Types.DATE, List.of(java.sql.Date.class, LocalDate.class, Timestamp.class, LocalDateTime.class)),
+        Map.entry(Types.TIMESTAMP, List.of(Timestamp.class, LocalDateTime.class, java.sql.Date.class)),
+        Map.entry(Types.TIME, List.of(Time.class)),
+        Map.entry(Types.BOOLEAN, List.of(boolean.class, Boolean.class)),
+        Map.entry(Types.BIT, List.of(boolean.class, Boolean.class)),
+        Map.entry(Types.BINARY, List.of(byte[].class)),
+        Map.entry(Types.VARBINARY, List.of(byte[].class)),
+        Map.entry(Types.LONGVARBINARY, List.of(byte[].class)),
+        Map.entry(Types.BLOB, List.of(byte[].class)));
+
+    private record Key(Class<?> type, Class<?> lookupClass, List<String> labels, List<Integer> sqlTypes,
+                       Set<String> skipped) {
+    }
+
+    private RowMapperFactory() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> RowMapper<T> mapper(MethodHandles.Lookup lookup, Class<T> type, ResultSetMetaData metaData,
+                                   String... skippedColumns) throws SQLException {
+        List<String> labels = new ArrayList<>(metaData.getColumnCount());
+        List<Integer> sqlTypes = new ArrayList<>(metaData.getColumnCount());
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            labels.add(metaData.getColumnLabel(i));
+            sqlTypes.add(metaData.getColumnType(i));
+        }
+        Set<String> skipped = new HashSet<>();
+        for (String column : skippedColumns) {
+            skipped.add(normalize(column));
+        }
+        Key key = new Key(type, lookup.lookupClass(), labels, sqlTypes, skipped);
+        RowMapper<?> mapper = CACHE.get(key);
+        if (mapper == null) {
+            mapper = CACHE.computeIfAbsent(key, k -> build(lookup, type, labels, sqlTypes, skipped));
+        }
+        return (RowMapper<T>) mapper;
+    }
+
+    private static <T> RowMapper<T> build(MethodHandles.Lookup lookup, Class<T> type, List<String> labels,
+                                          List<Integer> sqlTypes, Set<String> skipped) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < labels.size(); i++) {
+            columns.putIfAbsent(normalize(labels.get(i)), i + 1);
+        }
+        columns.keySet().removeAll(skipped);
+        try {
+            MethodHandle handle = type.isRecord()
+                ? recordHandle(lookup, type, columns, skipped)
+                : beanHandle(lookup, type, columns, sqlTypes);
+            MethodHandle exact = handle.asType(MethodType.methodType(Object.class, ResultSet.class));
+            return new HandleMapper<>(type, exact);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot map " + labels + " to " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Canonical constructor with each argument filtered through its column
+     * getter, then all {@code ResultSet} parameters merged into one. Skipped
+     * components get their type's default value.
+     */
+    private static MethodHandle recordHandle(MethodHandles.Lookup lookup, Class<?> type, Map<String, Integer> columns,
+                                             Set<String> skipped) throws ReflectiveOperationException {
+        RecordComponent[] components = type.getRecordComponents();
+        Class<?>[] parameterTypes = new Class<?>[components.length];
+        MethodHandle[] getters = new MethodHandle[components.length];
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < components.length; i++) {
+            parameterTypes[i] = components[i].getType();
+            Integer column = columns.get(normalize(components[i].getName()));
+            if (column == null && skipped.contains(normalize(components[i].getName()))) {
+                getters[i] = MethodHandles.dropArguments(MethodHandles.zero(parameterTypes[i]), 0, ResultSet.class);
+            } else if (column == null) {
+                missing.add(components[i].getName());
+            } else {
+                getters[i] = getter(parameterTypes[i], column);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("No column for record components " + missing + " of " + type.getName());
+        }
+        MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes));
+        MethodHandle filtered = MethodHandles.filterArguments(constructor, 0, getters);
+        return MethodHandles.permuteArguments(filtered,
+            MethodType.methodType(type, ResultSet.class), new int[components.length]);
+    }
+
+    /**
+     * No-arg constructor followed by one setter call per matched column, in
+     * column order so the driver reads the row front to back. Of overloaded
+     * setters the one taking the column's JDBC type is used.
+     */
+    private static MethodHandle beanHandle(MethodHandles.Lookup lookup, Class<?> type, Map<String, Integer> columns,
+                                           List<Integer> sqlTypes) throws ReflectiveOperationException {
+        MethodType setterType = MethodType.methodType(void.class, Object.class, ResultSet.class);
+        MethodHandle setters = MethodHandles.empty(setterType);
+        Map<Integer, List<Method>> candidates = new TreeMap<>();
+        for (Method method : type.getMethods()) {
+            if (!method.getName().startsWith("set") || method.getParameterCount() != 1
+                    || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            Integer column = columns.get(normalize(method.getName().substring(3)));
+            if (column != null) {
+                candidates.computeIfAbsent(column, c -> new ArrayList<>()).add(method);
+            }
+        }
+        for (Map.Entry<Integer, List<Method>> entry : candidates.entrySet()) {
+            int column = entry.getKey();
+            Method method = setterFor(entry.getValue(), sqlTypes.get(column - 1));
+            MethodHandle setter = lookup.unreflect(method);
+            MethodHandle getter = getter(method.getParameterTypes()[0], column);
+            MethodHandle fromColumn = MethodHandles.filterArguments(setter, 1, getter).asType(setterType);
+            // Run the column's setter after the previous ones
+            setters = MethodHandles.foldArguments(fromColumn, setters);
+        }
+        MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+            .asType(MethodType.methodType(Object.class));
+        MethodHandle returnInstance = MethodHandles.dropArguments(
+            MethodHandles.identity(Object.class), 1, ResultSet.class);
+        // (instance, rs) -> { setters(instance, rs); return instance; }, instance from the constructor
+        MethodHandle populate = MethodHandles.foldArguments(returnInstance, setters);
+        return MethodHandles.foldArguments(populate, constructor);
+    }
+
+    /**
+     * The setter whose parameter type is preferred for {@code sqlType};
+     * without a match the first by parameter type name, so the choice does
+     * not depend on the order of {@code getMethods()}.
+     */
+    private static Method setterFor(List<Method> setters, int sqlType) {
+        if (setters.size() == 1) {
+            return setters.get(0);
+        }
+        for (Class<?> preferred : PREFERRED.getOrDefault(sqlType, List.of())) {
+            for (Method setter : setters) {
+                if (setter.getParameterTypes()[0] == preferred) {
+                    return setter;
+                }
+            }
+        }
+        return setters.stream()
+            .min(Comparator.comparing((Method m) -> m.getParameterTypes()[0].getName()))
+            .orElseThrow();
+    }
+
+    /**
+     * {@code (ResultSet)type} reading the column at {@code index}.
+     */
+    private static MethodHandle getter(Class<?> type, int index) throws ReflectiveOperationException {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        String name = GETTERS.get(type);
+        MethodHandle getter;
+        if (name != null) {
+            getter = lookup.findVirtual(ResultSet.class, name, MethodType.methodType(type, int.class));
+        } else if (type == Object.class) {
+            getter = lookup.findVirtual(ResultSet.class, "getObject", MethodType.methodType(Object.class, int.class));
+        } else {
+            getter = lookup.findVirtual(ResultSet.class, "getObject",
+                MethodType.methodType(Object.class, int.class, Class.class));
+            getter = MethodHandles.insertArguments(getter, 2, type);
+        }
+        return MethodHandles.insertArguments(getter, 1, index).asType(MethodType.methodType(type, ResultSet.class));
+    }
+
+    static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static final class HandleMapper<T> implements RowMapper<T> {
+        private final Class<T> type;
+        private final MethodHandle handle;
+
+        HandleMapper(Class<T> type, MethodHandle handle) {
+            this.type = type;
+            this.handle = handle;
+        }
+
+        @Override
+        public T map(ResultSet rs) throws SQLException {
+            try {
+                return type.cast((Object) handle.invokeExact(rs));
+            } catch (SQLException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Row mapping to " + type.getName() + " failed", e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "RowMapper[" + type.getName() + "]";
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.executor;
+
+import com.example.config.DatabaseConfig;
+import com.example.model.ResultData;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Optional second stage between the JDBC fetch threads and the sinks.
+ * <p>
+ * Each partition's sink is wrapped in a {@link Stage}: the fetch thread only
+ * decodes the row and drops it into a preallocated single-producer ring,
+ * while a shared pool of {@code executor.pipeline.workers} threads drains the
+ * rings into the real sinks (encoding, hashing, dictionary building, file
+ * writes). A partition's rows still reach its sink in order and from one
+ * thread at a time. When a ring is full the fetch thread waits, so memory
+ * stays bounded by {@code executor.pipeline.ring-size} rows per partition.
+ * <p>
+ * Column values are read on the fetch thread because a {@code ResultSet}
+ * must not be shared between threads, and the driver decodes in its getters.
+ */
+public class RowPipeline implements AutoCloseable {
+
+    /** Longest a waiting fetch thread parks before rechecking the ring. */
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final ExecutorService workers;
+    private final int ringSize;
+
+    public RowPipeline(int workerCount, int ringSize) {
+        if (Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two: " + ringSize);
+        }
+        this.ringSize = ringSize;
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread thread = new Thread(r, "pqe-pipeline-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Pipeline configured by {@code executor.pipeline.*}, or null when
+     * {@code executor.pipeline} is off.
+     */
+    public static RowPipeline fromConfig() {
+        if (!Boolean.parseBoolean(DatabaseConfig.getProperty("executor.pipeline", "false").trim())) {
+            return null;
+        }
+        return new RowPipeline(
+            DatabaseConfig.getIntProperty("executor.pipeline.workers", Runtime.getRuntime().availableProcessors()),
+            Integer.highestOneBit(Math.max(2, DatabaseConfig.getIntProperty("executor.pipeline.ring-size", 4096))));
+    }
+
+    /**
+     * Ring in front of one partition's sink. Only one thread may call
+     * {@code accept} and {@code partitionComplete}.
+     */
+    public Stage stage(ResultSink sink) {
+        return new Stage(sink);
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "pipeline of " + ringSize + "-row rings";
+    }
+
+    /**
+     * Single-producer ring drained by at most one worker at a time. The
+     * producer publishes a slot by advancing {@code tail}, the worker frees
+     * it by advancing {@code head}; {@code scheduled} ensures exactly one
+     * drain task is queued or running whenever the ring is non-empty.
+     */
+    public final class Stage implements ResultSink, AutoCloseable {
+        private final ResultSink sink;
+        private final ResultData[] ring = new ResultData[ringSize];
+        private final int mask = ringSize - 1;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long head;
+        private volatile long tail;
+        private volatile Thread waiter;
+        private volatile Exception failure;
+
+        private Stage(ResultSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void accept(ResultData row) throws Exception {
+            throwFailure();
+            long t = tail;
+            while (t - head >= ringSize) {
+                await();
+            }
+            ring[(int) t & mask] = row;
+            tail = t + 1;
+            schedule();
+        }
+
+        /**
+         * Wait until every queued row has reached the sink, then pass the
+         * completion on from the fetch thread.
+         */
+        @Override
+        public void partitionComplete(Partition partition, int recordCount) throws Exception {
+            drain();
+            sink.partitionComplete(partition, recordCount);
+        }
+
+        /**
+         * Wait until the worker has delivered or dropped every queued row,
+         * then ask the sink to discard the partition so it can be re-run
+         * through this stage. Refused if the sink already failed, since the
+         * rows it dropped leave nothing consistent to discard.
+         */
+        @Override
+        public boolean discard(Partition partition) throws Exception {
+            while (head != tail || scheduled.get()) {
+                park();
+            }
+            return failure == null && sink.discard(partition);
+        }
+
+        /**
+         * Wait for queued rows to reach the sink, e.g. after the fetch failed.
+         * A sink failure is not rethrown here; it already surfaced through
+         * {@code accept} or {@code partitionComplete}, or the fetch failed first.
+         */
+        @Override
+        public void close() {
+            try {
+                while ((head != tail || scheduled.get()) && failure == null) {
+                    park();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void drain() throws Exception {
+            while (head != tail || scheduled.get()) {
+                await();
+            }
+            throwFailure();
+        }
+
+        private void await() throws Exception {
+            throwFailure();
+            park();
+        }
+
+        private void park() throws InterruptedException {
+            waiter = Thread.currentThread();
+            LockSupport.parkNanos(this, PARK_NANOS);
+            waiter = null;
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Interrupted while waiting for the pipeline");
+            }
+        }
+
+        private void throwFailure() throws Exception {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        private void schedule() {
+            if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+                workers.execute(this::run);
+            }
+        }
+
+        /**
+         * Deliver up to one ring's worth of rows, then yield the worker to
+         * other partitions by requeueing if more are waiting.
+         */
+        private void run() {
+            long h = head;
+            long end = Math.min(tail, h + ringSize);
+            try {
+                while (h < end) {
+                    int slot = (int) h & mask;
+                    ResultData row = ring[slot];
+                    ring[slot] = null;
+                    if (failure == null) {
+                        sink.accept(row);
+                    }
+                    head = ++h;
+                    if ((h & 255) == 0) {
+                        wakeProducer();
+                    }
+                }
+            } catch (Exception e) {
+                failure = e;
+                head = ++h;
+            }
+            if (h < tail && failure == null) {
+                workers.execute(this::run);
+                wakeProducer();
+                return;
+            }
+            if (failure != null) {
+                // Discard the rest; the fetch thread sees the failure on its next call
+                for (long t = tail; h < t; h++) {
+                    ring[(int) h & mask] = null;
+                }
+                head = h;
+            }
+            scheduled.set(false);
+            // A row published after the check above would otherwise wait for the next accept
+            if (head != tail) {
+                schedule();
+            }
+            wakeProducer();
+        }
+
+        private void wakeProducer() {
+            Thread thread = waiter;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+}
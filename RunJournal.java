@@ -0,0 +1,155 @@
+package com.example.executor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Durable, append-only journal of a resumable run.
+ * <p>
+ * The first run of an id writes its partition plan; every partition that
+ * finishes appends a {@code DONE} record with its row count and output file.
+ * A rerun with the same id reuses the recorded plan (so chunk boundaries do
+ * not move when the data changes) and skips partitions whose output exists.
+ * Records are tab-separated lines and are forced to disk as they are written:
+ * <pre>
+ *   PLAN  grade  chunk  chunkCount  predicate|-  bind...     (binds as L:long, I:int, T:epochMillis, S:string)
+ *   DONE  partitionId  rows  file
+ * </pre>
+ */
+public class RunJournal implements AutoCloseable {
+
+    private final Path file;
+    private final List<Partition> plan = new ArrayList<>();
+    private final Map<String, Path> completed = new LinkedHashMap<>();
+    private final BufferedWriter writer;
+
+    public RunJournal(Path file) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                parse(line);
+            }
+        }
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+    }
+
+    public boolean hasPlan() {
+        return !plan.isEmpty();
+    }
+
+    public List<Partition> getPlan() {
+        return Collections.unmodifiableList(plan);
+    }
+
+    /**
+     * Record the plan of a new run.
+     */
+    public synchronized List<Partition> writePlan(List<Partition> partitions) throws IOException {
+        if (hasPlan()) {
+            throw new IllegalStateException("Journal " + file + " already has a plan");
+        }
+        for (Partition partition : partitions) {
+            StringBuilder line = new StringBuilder("PLAN\t")
+                .append(partition.getGrade()).append('\t')
+                .append(partition.getChunk()).append('\t')
+                .append(partition.getChunkCount()).append('\t')
+                .append(partition.getPredicate() == null ? "-" : partition.getPredicate());
+            for (Object bind : partition.getBinds()) {
+                line.append('\t').append(encodeBind(bind));
+            }
+            writeLine(line.toString());
+            plan.add(partition);
+        }
+        return getPlan();
+    }
+
+    /**
+     * Whether the partition finished in an earlier attempt and its output is still there.
+     */
+    public synchronized boolean isDone(Partition partition) {
+        Path output = completed.get(partition.getId());
+        return output != null && Files.exists(output);
+    }
+
+    public synchronized void markDone(Partition partition, long rows, Path output) throws IOException {
+        writeLine("DONE\t" + partition.getId() + "\t" + rows + "\t" + output.toAbsolutePath());
+        completed.put(partition.getId(), output.toAbsolutePath());
+    }
+
+    /**
+     * Output files of completed partitions, in plan order.
+     */
+    public synchronized List<Path> completedOutputs() {
+        List<Path> outputs = new ArrayList<>();
+        for (Partition partition : plan) {
+            if (isDone(partition)) {
+                outputs.add(completed.get(partition.getId()));
+            }
+        }
+        return outputs;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private void writeLine(String line) throws IOException {
+        writer.write(line);
+        writer.newLine();
+        writer.flush();
+    }
+
+    private void parse(String line) throws IOException {
+        if (line.isBlank()) {
+            return;
+        }
+        String[] fields = line.split("\t", -1);
+        switch (fields[0]) {
+            case "PLAN" -> {
+                Object[] binds = new Object[fields.length - 5];
+                for (int i = 0; i < binds.length; i++) {
+                    binds[i] = decodeBind(fields[5 + i]);
+                }
+                plan.add(new Partition(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                    Integer.parseInt(fields[3]), "-".equals(fields[4]) ? null : fields[4], binds));
+            }
+            case "DONE" -> completed.put(fields[1], Path.of(fields[3]));
+            default -> throw new IOException("Corrupt journal " + file + ": " + line);
+        }
+    }
+
+    private static String encodeBind(Object bind) {
+        if (bind instanceof Long value) {
+            return "L:" + value;
+        } else if (bind instanceof Integer value) {
+            return "I:" + value;
+        } else if (bind instanceof Timestamp value) {
+            return "T:" + value.getTime();
+        } else if (bind instanceof String value && value.indexOf('\t') < 0 && value.indexOf('\n') < 0) {
+            return "S:" + value;
+        }
+        throw new IllegalArgumentException("Cannot journal bind value " + bind);
+    }
+
+    private static Object decodeBind(String field) {
+        String value = field.substring(2);
+        return switch (field.charAt(0)) {
+            case 'L' -> Long.parseLong(value);
+            case 'I' -> Integer.parseInt(value);
+            case 'T' -> new Timestamp(Long.parseLong(value));
+            default -> value;
+        };
+    }
+}
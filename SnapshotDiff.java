@@ -0,0 +1,361 @@
+package com.example.executor;
+
+import com.example.model.ResultData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Snapshot-diff change detection.
+ * <p>
+ * For every grade the previous run left a sorted {@code id -> content hash}
+ * index file. While the current run streams rows, each row's 64-bit hash is
+ * looked up in the memory-mapped previous index: unknown ids are emitted as
+ * {@link ChangeType#INSERT}, ids with a different hash as
+ * {@link ChangeType#UPDATE}, and matching rows are dropped. Once every
+ * partition of a grade has succeeded, ids of the previous index that were not
+ * seen are emitted as {@link ChangeType#DELETE} (with only {@code id} and
+ * {@code grade} set) and the grade's index is replaced by the current one.
+ * <p>
+ * If a grade fails its old index is kept, so the next run reports its changes
+ * again: delivery is at-least-once. The current run's ids and hashes are held
+ * in memory (16 bytes per row) until the grade's index is written.
+ */
+public class SnapshotDiff {
+
+    public enum ChangeType {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+
+    /**
+     * Receives changed rows. Called concurrently from the fetch threads, and
+     * for deletes from the thread that finishes the run.
+     */
+    @FunctionalInterface
+    public interface ChangeSink {
+        void accept(ChangeType type, ResultData row) throws Exception;
+    }
+
+    private final Path directory;
+    private final ChangeSink changes;
+    private final Map<Integer, GradeState> grades = new HashMap<>();
+
+    public SnapshotDiff(Path directory, ChangeSink changes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.changes = changes;
+    }
+
+    /**
+     * Load the previous index of every grade in the plan.
+     */
+    public void begin(List<Partition> partitions) throws IOException {
+        for (Partition partition : partitions) {
+            if (!grades.containsKey(partition.getGrade())) {
+                grades.put(partition.getGrade(), new GradeState(indexFile(partition.getGrade())));
+            }
+        }
+    }
+
+    /**
+     * Sink that diffs one partition's rows against the previous index.
+     */
+    public ResultSink newPartition(Partition partition) {
+        GradeState state = grades.get(partition.getGrade());
+        if (state == null) {
+            throw new IllegalStateException("Grade " + partition.getGrade() + " was not passed to begin()");
+        }
+        return new PartitionDiff(state);
+    }
+
+    /**
+     * Emit deletes and replace the index for every grade whose partitions all
+     * succeeded.
+     *
+     * @return number of deletes emitted
+     */
+    public long finish(Collection<Partition> failed) throws Exception {
+        Set<Integer> failedGrades = new HashSet<>();
+        for (Partition partition : failed) {
+            failedGrades.add(partition.getGrade());
+        }
+
+        long deletes = 0;
+        for (Map.Entry<Integer, GradeState> entry : grades.entrySet()) {
+            if (failedGrades.contains(entry.getKey())) {
+                System.err.println("Snapshot index of grade " + entry.getKey() + " kept because the grade failed");
+                continue;
+            }
+            deletes += entry.getValue().emitDeletes(entry.getKey(), changes);
+            entry.getValue().writeIndex();
+        }
+        return deletes;
+    }
+
+    private Path indexFile(int grade) {
+        return directory.resolve("grade-" + grade + ".idx");
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the row content, including the id. Covers every
+     * column of {@link ResultData}; a column left out here is not diffed.
+     */
+    static long contentHash(ResultData row) {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, row.getId());
+        hash = mix(hash, row.getGrade());
+        hash = mix(hash, row.getCreatedDate() == null ? Long.MIN_VALUE : row.getCreatedDate().getTime());
+        hash = mix(hash, row.getName());
+        hash = mix(hash, row.getDescription());
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, String value) {
+        if (value == null) {
+            return mix(hash, -1L);
+        }
+        hash = mix(hash, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash ^= c & 0xFF;
+            hash *= 0x100000001b3L;
+            hash ^= c >>> 8;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Previous index (mapped read-only), the ids of it seen this run and the
+     * id/hash pairs collected for the new index.
+     */
+    private static class GradeState {
+        private final Path file;
+        private final LongBuffer previous;
+        private final int previousCount;
+        private final AtomicLongArray seen;
+        private long[] ids = new long[1024];
+        private long[] hashes = new long[1024];
+        private int count;
+
+        GradeState(Path file) throws IOException {
+            this.file = file;
+            if (Files.exists(file)) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    if (channel.size() > Integer.MAX_VALUE) {
+                        throw new IOException("Snapshot index too large to map: " + file);
+                    }
+                    ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    this.previous = mapped.asLongBuffer();
+                }
+                this.previousCount = previous.capacity() / 2;
+            } else {
+                this.previous = LongBuffer.allocate(0);
+                this.previousCount = 0;
+            }
+            this.seen = new AtomicLongArray((previousCount + 63) / 64);
+        }
+
+        /**
+         * Position of the id in the previous index, or -1.
+         */
+        int find(long id) {
+            int lo = 0;
+            int hi = previousCount - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                long midId = previous.get(2 * mid);
+                if (midId < id) {
+                    lo = mid + 1;
+                } else if (midId > id) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        long previousHash(int position) {
+            return previous.get(2 * position + 1);
+        }
+
+        void markSeen(int position) {
+            int word = position >>> 6;
+            long bit = 1L << (position & 63);
+            long current;
+            do {
+                current = seen.get(word);
+            } while ((current & bit) == 0 && !seen.compareAndSet(word, current, current | bit));
+        }
+
+        synchronized void addAll(long[] partIds, long[] partHashes, int partCount) {
+            if (count + partCount > ids.length) {
+                int capacity = Math.max(count + partCount, ids.length + (ids.length >> 1));
+                ids = Arrays.copyOf(ids, capacity);
+                hashes = Arrays.copyOf(hashes, capacity);
+            }
+            System.arraycopy(partIds, 0, ids, count, partCount);
+            System.arraycopy(partHashes, 0, hashes, count, partCount);
+            count += partCount;
+        }
+
+        long emitDeletes(int grade, ChangeSink changes) throws Exception {
+            long deletes = 0;
+            for (int position = 0; position < previousCount; position++) {
+                if ((seen.get(position >>> 6) & (1L << (position & 63))) == 0) {
+                    ResultData deleted = new ResultData();
+                    deleted.setId(previous.get(2 * position));
+                    deleted.setGrade(grade);
+                    changes.accept(ChangeType.DELETE, deleted);
+                    deletes++;
+                }
+            }
+            return deletes;
+        }
+
+        /**
+         * Sort the collected pairs by id and atomically replace the index file.
+         */
+        synchronized void writeIndex() throws IOException {
+            ExecutorEvents.SinkFlushEvent event = new ExecutorEvents.SinkFlushEvent();
+            event.begin();
+            sortPairs(ids, hashes, 0, count - 1);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+                for (int i = 0; i < count; i++) {
+                    if (buffer.remaining() < 16) {
+                        drain(channel, buffer);
+                    }
+                    buffer.putLong(ids[i]).putLong(hashes[i]);
+                }
+                drain(channel, buffer);
+                channel.force(false);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            ExecutorEvents.commitFlush(event, "snapshot-index", file.toString(), count, count * 16L);
+        }
+
+        private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Quicksort of parallel arrays by {@code keys}, insertion sort for short ranges.
+     */
+    static void sortPairs(long[] keys, long[] values, int lo, int hi) {
+        while (hi - lo > 16) {
+            long pivot = keys[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, values, i++, j--);
+                }
+            }
+            // Recurse into the smaller half to bound stack depth
+            if (j - lo < hi - i) {
+                sortPairs(keys, values, lo, j);
+                lo = i;
+            } else {
+                sortPairs(keys, values, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && keys[j - 1] > keys[j]; j--) {
+                swap(keys, values, j, j - 1);
+            }
+        }
+    }
+
+    private static void swap(long[] keys, long[] values, int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+    }
+
+    /**
+     * Diffs one partition's rows; collects its id/hash pairs locally and hands
+     * them to the grade once the partition is complete.
+     */
+    private class PartitionDiff implements ResultSink {
+        private final GradeState state;
+        private long[] ids = new long[1024];
+        private long[] hashes = new long[1024];
+        private int count;
+
+        PartitionDiff(GradeState state) {
+            this.state = state;
+        }
+
+        @Override
+        public void accept(ResultData row) throws Exception {
+            long hash = contentHash(row);
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count + (count >> 1));
+                hashes = Arrays.copyOf(hashes, count + (count >> 1));
+            }
+            ids[count] = row.getId();
+            hashes[count] = hash;
+            count++;
+
+            int position = state.find(row.getId());
+            if (position < 0) {
+                changes.accept(ChangeType.INSERT, row);
+            } else {
+                state.markSeen(position);
+                if (state.previousHash(position) != hash) {
+                    changes.accept(ChangeType.UPDATE, row);
+                }
+            }
+        }
+
+        @Override
+        public void partitionComplete(Partition partition, int recordCount) {
+            state.addAll(ids, hashes, count);
+            ids = null;
+            hashes = null;
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package com.example.executor;
+
+import com.example.config.DatabaseConfig;
+import com.example.model.ResultData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Result store that keeps rows in heap until a shared budget is exceeded and
+ * then spills them to memory-mapped segment files.
+ * <p>
+ * Each partition gets its own {@link PartitionStore} sink holding a
+ * {@link ColumnarResultBuffer}. All partitions account their estimated bytes
+ * against one budget. When a row crosses it, the buffers of completed
+ * partitions are spilled first, largest first, until usage is back under the
+ * budget; only if that is not enough does the partition that added the row
+ * write its own buffer to a new segment and start over. Iteration returns
+ * every row in partition order, reading spilled segments through read-only
+ * mappings followed by the rows still in heap. Closing the store unmaps those
+ * segments and deletes its spill directory; an iterator still reading a
+ * segment then throws {@link IllegalStateException}.
+ */
+public class SpillingResultStore implements Iterable<ResultData>, AutoCloseable {
+
+    /** Fixed bytes per row in a segment: id, grade, created millis, two length prefixes. */
+    private static final int FIXED_ROW_BYTES = 8 + 4 + 8 + 4 + 4;
+
+    /** Keep single mappings well below the 2 GB limit of a MappedByteBuffer. */
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    /** {@code Unsafe.invokeCleaner}, or null if this JVM does not offer it. */
+    private static final MethodHandle INVOKE_CLEANER = invokeCleaner();
+
+    private final long heapBudgetBytes;
+    private final Path spillDir;
+    private final AtomicLong heapBytes = new AtomicLong();
+    private final AtomicLong spilledRows = new AtomicLong();
+    private final List<PartitionStore> partitions = Collections.synchronizedList(new ArrayList<>());
+    private final List<MappedByteBuffer> mappings = new ArrayList<>();
+    private volatile boolean closed;
+
+    public SpillingResultStore(long heapBudgetBytes, Path parentDir) throws IOException {
+        this.heapBudgetBytes = heapBudgetBytes;
+        Files.createDirectories(parentDir);
+        this.spillDir = Files.createTempDirectory(parentDir, "pqe-spill-");
+    }
+
+    /**
+     * Store configured by {@code executor.spill.heap-budget-mb} and
+     * {@code executor.spill.dir} (defaults to {@code java.io.tmpdir}).
+     */
+    public static SpillingResultStore fromConfig() throws IOException {
+        long budget = DatabaseConfig.getIntProperty("executor.spill.heap-budget-mb", 256) * 1024L * 1024L;
+        String dir = DatabaseConfig.getProperty("executor.spill.dir", "").trim();
+        return new SpillingResultStore(budget, Path.of(dir.isEmpty() ? System.getProperty("java.io.tmpdir") : dir));
+    }
+
+    /**
+     * Create the sink for the next partition. Partitions are iterated in the
+     * order their stores were created.
+     */
+    public PartitionStore newPartition(String partitionId) {
+        PartitionStore store = new PartitionStore(partitionId, partitions.size());
+        partitions.add(store);
+        return store;
+    }
+
+    /** Rows written to segment files so far. */
+    public long getSpilledRows() {
+        return spilledRows.get();
+    }
+
+    /** Estimated bytes currently held in heap. */
+    public long getHeapBytes() {
+        return heapBytes.get();
+    }
+
+    public long size() {
+        long size = 0;
+        for (PartitionStore store : snapshot()) {
+            size += store.rowCount;
+        }
+        return size;
+    }
+
+    @Override
+    public Iterator<ResultData> iterator() {
+        Iterator<PartitionStore> stores = snapshot().iterator();
+        return new Iterator<>() {
+            private Iterator<ResultData> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && stores.hasNext()) {
+                    current = stores.next().iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public ResultData next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    /**
+     * Unmap the segments read so far and delete the spill directory.
+     * Iterators read segments under the same lock and check {@code closed}
+     * first, so a read racing with close fails instead of touching
+     * released memory.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (mappings) {
+            closed = true;
+            for (MappedByteBuffer mapping : mappings) {
+                unmap(mapping);
+            }
+            mappings.clear();
+        }
+        try (Stream<Path> files = Files.walk(spillDir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Spill completed partitions, largest buffer first, until heap usage is
+     * back under the budget.
+     *
+     * @return whether usage is under the budget
+     */
+    private boolean evictCompleted() throws IOException {
+        List<PartitionStore> completed = new ArrayList<>();
+        for (PartitionStore store : snapshot()) {
+            if (store.complete && store.bufferBytes > 0) {
+                completed.add(store);
+            }
+        }
+        completed.sort(Comparator.comparingLong((PartitionStore store) -> store.bufferBytes).reversed());
+        for (PartitionStore store : completed) {
+            if (heapBytes.get() <= heapBudgetBytes) {
+                break;
+            }
+            store.spill();
+        }
+        return heapBytes.get() <= heapBudgetBytes;
+    }
+
+    private static MethodHandle invokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Release a mapping now instead of when it is garbage collected. Falls
+     * back to the collector if the JVM does not allow it.
+     */
+    private static void unmap(MappedByteBuffer mapping) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invokeExact((ByteBuffer) mapping);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unmapping spill segment failed", e);
+        }
+    }
+
+    private List<PartitionStore> snapshot() {
+        synchronized (partitions) {
+            return new ArrayList<>(partitions);
+        }
+    }
+
+    private static long estimateHeapBytes(ResultData row) {
+        long bytes = FIXED_ROW_BYTES;
+        if (row.getName() != null) {
+            bytes += 2L * row.getName().length();
+        }
+        if (row.getDescription() != null) {
+            bytes += 2L * row.getDescription().length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Sink for one partition. Written by a single fetch thread; once the
+     * partition completes, other partitions' threads may spill its buffer.
+     */
+    public class PartitionStore implements ResultSink, Iterable<ResultData> {
+        private final String partitionId;
+        private final int index;
+        private final List<Path> segments = new ArrayList<>();
+        private ColumnarResultBuffer buffer = new ColumnarResultBuffer();
+        private volatile long bufferBytes;
+        private volatile boolean complete;
+        private long rowCount;
+
+        PartitionStore(String partitionId, int index) {
+            this.partitionId = partitionId;
+            this.index = index;
+        }
+
+        @Override
+        public void accept(ResultData row) throws IOException {
+            buffer.accept(row);
+            rowCount++;
+            long bytes = estimateHeapBytes(row);
+            bufferBytes += bytes;
+            if (heapBytes.addAndGet(bytes) > heapBudgetBytes && !evictCompleted()) {
+                spill();
+            }
+        }
+
+        @Override
+        public synchronized void partitionComplete(Partition partition, int recordCount) {
+            buffer.trim();
+            complete = true;
+        }
+
+        /**
+         * Drop the rows in heap and delete the segments spilled so far.
+         */
+        @Override
+        public synchronized boolean discard(Partition partition) throws IOException {
+            heapBytes.addAndGet(-bufferBytes);
+            spilledRows.addAndGet(buffer.size() - rowCount);
+            for (Path segment : segments) {
+                Files.deleteIfExists(segment);
+            }
+            segments.clear();
+            buffer = new ColumnarResultBuffer();
+            bufferBytes = 0;
+            rowCount = 0;
+            return true;
+        }
+
+        /**
+         * Write the in-heap rows of this partition to one or more new segments.
+         */
+        synchronized void spill() throws IOException {
+            if (buffer.size() == 0) {
+                return;
+            }
+            ExecutorEvents.SinkFlushEvent event = new ExecutorEvents.SinkFlushEvent();
+            event.begin();
+            int row = 0;
+            while (row < buffer.size()) {
+                row = writeSegment(row);
+            }
+            ExecutorEvents.commitFlush(event, "spill", partitionId, buffer.size(), bufferBytes);
+            spilledRows.addAndGet(buffer.size());
+            heapBytes.addAndGet(-bufferBytes);
+            buffer = new ColumnarResultBuffer();
+            bufferBytes = 0;
+        }
+
+        private int writeSegment(int from) throws IOException {
+            List<byte[]> strings = new ArrayList<>();
+            long size = 0;
+            int to = from;
+            while (to < buffer.size()) {
+                byte[] name = utf8(buffer.getName(to));
+                byte[] description = utf8(buffer.getDescription(to));
+                long rowSize = FIXED_ROW_BYTES + length(name) + length(description);
+                if (to > from && size + rowSize > MAX_SEGMENT_BYTES) {
+                    break;
+                }
+                strings.add(name);
+                strings.add(description);
+                size += rowSize;
+                to++;
+            }
+
+            Path segment = spillDir.resolve(String.format("p%05d-%s-%04d.seg", index, partitionId, segments.size()));
+            try (FileChannel channel = FileChannel.open(segment,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                try {
+                    for (int row = from; row < to; row++) {
+                        out.putLong(buffer.getId(row));
+                        out.putInt(buffer.getGrade(row));
+                        out.putLong(buffer.getCreatedMillis(row));
+                        putString(out, strings.get(2 * (row - from)));
+                        putString(out, strings.get(2 * (row - from) + 1));
+                    }
+                } finally {
+                    unmap(out);
+                }
+            }
+            segments.add(segment);
+            return to;
+        }
+
+        @Override
+        public synchronized Iterator<ResultData> iterator() {
+            List<Iterator<ResultData>> parts = new ArrayList<>();
+            for (Path segment : segments) {
+                parts.add(new SegmentIterator(segment));
+            }
+            ColumnarResultBuffer heap = buffer;
+            parts.add(new Iterator<>() {
+                private int row;
+
+                @Override
+                public boolean hasNext() {
+                    return row < heap.size();
+                }
+
+                @Override
+                public ResultData next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return heap.getRow(row++);
+                }
+            });
+
+            Iterator<Iterator<ResultData>> outer = parts.iterator();
+            return new Iterator<>() {
+                private Iterator<ResultData> current = Collections.emptyIterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!current.hasNext() && outer.hasNext()) {
+                        current = outer.next();
+                    }
+                    return current.hasNext();
+                }
+
+                @Override
+                public ResultData next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return current.next();
+                }
+            };
+        }
+    }
+
+    /**
+     * Decodes rows from a read-only mapping of one segment; the file is only
+     * mapped once iteration reaches it and unmapped when it is exhausted or
+     * the store is closed.
+     */
+    private class SegmentIterator implements Iterator<ResultData> {
+        private final Path segment;
+        private MappedByteBuffer in;
+        private boolean done;
+
+        SegmentIterator(Path segment) {
+            this.segment = segment;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (done) {
+                return false;
+            }
+            if (closed) {
+                throw new IllegalStateException("Spill store is closed");
+            }
+            if (in == null) {
+                MappedByteBuffer mapping;
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                    mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot map spill segment " + segment, e);
+                }
+                synchronized (mappings) {
+                    if (closed) {
+                        unmap(mapping);
+                        throw new IllegalStateException("Spill store is closed");
+                    }
+                    mappings.add(mapping);
+                }
+                in = mapping;
+            }
+            if (in.hasRemaining()) {
+                return true;
+            }
+            MappedByteBuffer mapping = in;
+            synchronized (mappings) {
+                // ByteBuffer.equals compares contents, so match by identity;
+                // a buffer the store already released on close is not found
+                if (mappings.removeIf(m -> m == mapping)) {
+                    unmap(mapping);
+                }
+            }
+            in = null;
+            done = true;
+            return false;
+        }
+
+        @Override
+        public ResultData next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ResultData data = new ResultData();
+            // Decode under the lock close() unmaps with, so the mapping stays valid
+            synchronized (mappings) {
+                if (closed) {
+                    throw new IllegalStateException("Spill store is closed");
+                }
+                data.setId(in.getLong());
+                data.setGrade(in.getInt());
+                long millis = in.getLong();
+                data.setCreatedDate(millis == ColumnarResultBuffer.NULL_TIME ? null : new Timestamp(millis));
+                data.setName(getString(in));
+                data.setDescription(getString(in));
+            }
+            return data;
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putString(ByteBuffer out, byte[] bytes) {
+        if (bytes == null) {
+            out.putInt(-1);
+        } else {
+            out.putInt(bytes.length);
+            out.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,629 @@
+package com.example.executor;
+
+import com.example.config.DatabaseConfig;
+import com.example.model.ResultData;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes rows as CSV or newline-delimited JSON straight from the fetch threads.
+ * <p>
+ * Every partition encodes into its own reusable direct {@link ByteBuffer};
+ * numbers, timestamps and strings are written as bytes without building a
+ * per-row {@code String}. Full buffers are written to the target file's
+ * {@link FileChannel}, so disk writes overlap with the fetches of other
+ * partitions. Output goes to one file series, or one per grade, that rolls to
+ * a new file once the size or row limit has been reached; rolling happens at
+ * buffer boundaries, so files may exceed the limits by up to one buffer. A
+ * streamed {@link LargeTextColumn} description is copied from its reader in
+ * chunks and never held as a whole.
+ * <p>
+ * Files are written under a {@code .part} name and renamed by
+ * {@link #close()}; {@link #abort()} deletes them instead. A partition's
+ * buffer is only allocated once it delivers its first row and is released
+ * when it completes.
+ */
+public class TextFileExporter implements AutoCloseable {
+
+    public enum Format {
+        CSV("csv"),
+        NDJSON("ndjson");
+
+        final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private static final int BUFFER_BYTES = 256 * 1024;
+    /** Room kept for the closing quote and the columns after a streamed description. */
+    private static final int TAIL_BYTES = 512;
+    private static final byte[] CSV_HEADER = "id,grade,name,description,created_date\n".getBytes();
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private final Path directory;
+    private final String prefix;
+    private final Format format;
+    private final boolean filePerGrade;
+    private final long rollBytes;
+    private final long rollRows;
+    private final Map<String, RollingFile> files = new HashMap<>();
+
+    public TextFileExporter(Path directory, String prefix, Format format, boolean filePerGrade,
+                            long rollBytes, long rollRows) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.prefix = prefix;
+        this.format = format;
+        this.filePerGrade = filePerGrade;
+        this.rollBytes = rollBytes <= 0 ? Long.MAX_VALUE : rollBytes;
+        this.rollRows = rollRows <= 0 ? Long.MAX_VALUE : rollRows;
+    }
+
+    /**
+     * Exporter configured by {@code executor.export.*}.
+     */
+    public static TextFileExporter fromConfig(Path directory) throws IOException {
+        return new TextFileExporter(directory,
+            DatabaseConfig.getProperty("executor.export.prefix", "extract").trim(),
+            Format.valueOf(DatabaseConfig.getProperty("executor.export.format", "csv").trim().toUpperCase()),
+            Boolean.parseBoolean(DatabaseConfig.getProperty("executor.export.file-per-grade", "false").trim()),
+            DatabaseConfig.getIntProperty("executor.export.roll-size-mb", 512) * 1024L * 1024L,
+            DatabaseConfig.getIntProperty("executor.export.roll-rows", 0));
+    }
+
+    /**
+     * Sink for one partition, with its own encode buffer.
+     */
+    public ResultSink newPartition(Partition partition) {
+        String key = filePerGrade ? "g" + partition.getGrade() : "all";
+        RollingFile file;
+        synchronized (files) {
+            file = files.computeIfAbsent(key, RollingFile::new);
+        }
+        return new PartitionWriter(file);
+    }
+
+    /**
+     * All files written so far, in creation order per series.
+     */
+    public List<Path> getFiles() {
+        List<Path> result = new ArrayList<>();
+        synchronized (files) {
+            for (RollingFile file : files.values()) {
+                synchronized (file) {
+                    result.addAll(file.written);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Close the files and rename them to their final names.
+     */
+    @Override
+    public void close() throws IOException {
+        finish(true);
+    }
+
+    /**
+     * Close and delete every file written so far, e.g. because a partition
+     * failed and the export is incomplete.
+     */
+    public void abort() throws IOException {
+        finish(false);
+    }
+
+    private void finish(boolean keep) throws IOException {
+        IOException failure = null;
+        synchronized (files) {
+            for (RollingFile file : files.values()) {
+                try {
+                    file.finish(keep);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static Path partFile(Path path) {
+        return path.resolveSibling(path.getFileName() + ".part");
+    }
+
+    /**
+     * A series of output files sharing one key; writes are serialized per series.
+     */
+    private class RollingFile {
+        private final String key;
+        private final List<Path> written = new ArrayList<>();
+        private FileChannel channel;
+        private long bytes;
+        private long rows;
+        private boolean finished;
+
+        RollingFile(String key) {
+            this.key = key;
+        }
+
+        synchronized void write(ByteBuffer buffer, int rowCount) throws IOException {
+            write(buffer, rowCount, true);
+        }
+
+        /**
+         * @param rowStart whether the buffer starts at a row boundary, so the
+         *                 file may roll before it
+         */
+        synchronized void write(ByteBuffer buffer, int rowCount, boolean rowStart) throws IOException {
+            ExecutorEvents.SinkFlushEvent event = new ExecutorEvents.SinkFlushEvent();
+            event.begin();
+            if (channel == null || (rowStart && (bytes >= rollBytes || rows >= rollRows))) {
+                roll();
+            }
+            int size = buffer.remaining();
+            while (buffer.hasRemaining()) {
+                bytes += channel.write(buffer);
+            }
+            rows += rowCount;
+            ExecutorEvents.commitFlush(event, "text-" + format.extension, written.get(written.size() - 1).toString(),
+                rowCount, size);
+        }
+
+        private void roll() throws IOException {
+            close();
+            Path path = directory.resolve(String.format("%s-%s-%04d.%s", prefix, key, written.size() + 1, format.extension));
+            channel = FileChannel.open(partFile(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+            written.add(path);
+            bytes = 0;
+            rows = 0;
+            if (format == Format.CSV) {
+                bytes += channel.write(ByteBuffer.wrap(CSV_HEADER));
+            }
+        }
+
+        synchronized void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+
+        /**
+         * Close the current file, then rename or delete every file of the series.
+         */
+        synchronized void finish(boolean keep) throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            try {
+                close();
+            } finally {
+                for (Path path : written) {
+                    if (keep) {
+                        Files.move(partFile(path), path, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                    } else {
+                        Files.deleteIfExists(partFile(path));
+                    }
+                }
+                if (!keep) {
+                    written.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes one partition's rows into a direct buffer and hands full
+     * buffers to the partition's file series. Used by a single fetch thread.
+     */
+    private class PartitionWriter implements ResultSink {
+        private final RollingFile file;
+        private ByteBuffer buffer;
+        private int bufferedRows;
+
+        PartitionWriter(RollingFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public void accept(ResultData row) throws IOException {
+            allocate();
+            int mark = buffer.position();
+            try {
+                encodeTo(buffer, row);
+            } catch (BufferOverflowException e) {
+                buffer.position(mark);
+                flush();
+                try {
+                    encodeTo(buffer, row);
+                } catch (BufferOverflowException tooLarge) {
+                    buffer.clear();
+                    encodeOversized(row);
+                    return;
+                }
+            }
+            bufferedRows++;
+        }
+
+        /**
+         * Copy a streamed description through the text's reusable buffer. The
+         * row goes into the partition buffer as usual; if the value outgrows
+         * it, the file series is held until the row is complete, so no other
+         * partition's rows end up inside it.
+         */
+        @Override
+        public void accept(ResultData row, LargeTextColumn.Text text) throws Exception {
+            if (!"description".equals(RowMapperFactory.normalize(text.getColumn()))) {
+                ResultSink.super.accept(row, text);
+                return;
+            }
+            allocate();
+            if (!startStreamedRow(row)) {
+                ResultSink.super.accept(row, text);
+                return;
+            }
+            Reader reader = text.reader();
+            if (reader == null) {
+                if (format == Format.NDJSON) {
+                    put(buffer, "null");
+                }
+                finishRow(row);
+                return;
+            }
+            buffer.put((byte) '"');
+            int carry = copy(reader, text.buffer(), 0, false);
+            if (carry < 0) {
+                buffer.put((byte) '"');
+                finishRow(row);
+                return;
+            }
+            synchronized (file) {
+                flush();
+                copy(reader, text.buffer(), carry, true);
+                buffer.put((byte) '"');
+                finishRow(row);
+                buffer.flip();
+                file.write(buffer, bufferedRows, false);
+                buffer.clear();
+                bufferedRows = 0;
+            }
+        }
+
+        /**
+         * Encode the columns before the description, leaving at least
+         * {@link #TAIL_BYTES} free for a null value or the opening quote and
+         * the rest of the row. Flushes once if needed.
+         *
+         * @return false if even an empty buffer has no room; nothing is encoded then
+         */
+        private boolean startStreamedRow(ResultData row) throws IOException {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                int mark = buffer.position();
+                try {
+                    encodeHead(buffer, row);
+                    if (buffer.remaining() >= TAIL_BYTES) {
+                        return true;
+                    }
+                } catch (BufferOverflowException e) {
+                    // Retried below
+                }
+                buffer.position(mark);
+                if (mark == 0) {
+                    return false;
+                }
+                flush();
+            }
+            return false;
+        }
+
+        /**
+         * Encode the reader's chars into the buffer. A trailing high surrogate
+         * is carried over to the next read so pairs are not split.
+         *
+         * @param carry chars already at the start of {@code chars}
+         * @param hold  whether the file series is held, so partial rows may be written out
+         * @return -1 at the end of the value, or the carry if the buffer ran
+         *         out of room and {@code hold} is false
+         */
+        private int copy(Reader reader, char[] chars, int carry, boolean hold) throws IOException {
+            // Worst case is a six-byte JSON escape per char, plus room for the tail
+            int length = Math.min(chars.length, (BUFFER_BYTES - TAIL_BYTES) / 6);
+            int room = length * 6 + TAIL_BYTES;
+            while (true) {
+                if (buffer.remaining() < room) {
+                    if (!hold) {
+                        return carry;
+                    }
+                    buffer.flip();
+                    file.write(buffer, bufferedRows, bufferedRows > 0);
+                    buffer.clear();
+                    bufferedRows = 0;
+                }
+                int n = reader.read(chars, carry, length - carry);
+                if (n < 0) {
+                    putChars(buffer, chars, 0, carry);
+                    return -1;
+                }
+                int end = carry + n;
+                if (end == 0) {
+                    continue;
+                }
+                carry = Character.isHighSurrogate(chars[end - 1]) ? 1 : 0;
+                putChars(buffer, chars, 0, end - carry);
+                if (carry > 0) {
+                    chars[0] = chars[end - 1];
+                }
+            }
+        }
+
+        /**
+         * Encode the rest of a streamed row; {@link #copy} leaves room for it.
+         */
+        private void finishRow(ResultData row) {
+            encodeTail(buffer, row);
+            bufferedRows++;
+        }
+
+        @Override
+        public void partitionComplete(Partition partition, int recordCount) throws IOException {
+            flush();
+            buffer = null;
+        }
+
+        /** Allocated on the first row, so partitions still queued hold no direct memory. */
+        private void allocate() {
+            if (buffer == null) {
+                buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            }
+        }
+
+        private void flush() throws IOException {
+            if (buffer == null || buffer.position() == 0) {
+                return;
+            }
+            buffer.flip();
+            file.write(buffer, bufferedRows);
+            buffer.clear();
+            bufferedRows = 0;
+        }
+
+        /**
+         * A row that does not fit an empty buffer is encoded into a one-off heap buffer.
+         */
+        private void encodeOversized(ResultData row) throws IOException {
+            int size = BUFFER_BYTES;
+            while (true) {
+                size *= 2;
+                ByteBuffer large = ByteBuffer.allocate(size);
+                try {
+                    encodeTo(large, row);
+                } catch (BufferOverflowException e) {
+                    continue;
+                }
+                large.flip();
+                file.write(large, 1);
+                return;
+            }
+        }
+    }
+
+    private void encodeTo(ByteBuffer out, ResultData row) {
+        encodeHead(out, row);
+        if (format == Format.CSV) {
+            putCsv(out, row.getDescription());
+        } else {
+            putJson(out, row.getDescription());
+        }
+        encodeTail(out, row);
+    }
+
+    /** Everything before the description. */
+    private void encodeHead(ByteBuffer out, ResultData row) {
+        if (format == Format.CSV) {
+            putLong(out, row.getId());
+            out.put((byte) ',');
+            putLong(out, row.getGrade());
+            out.put((byte) ',');
+            putCsv(out, row.getName());
+            out.put((byte) ',');
+        } else {
+            put(out, "{\"id\":");
+            putLong(out, row.getId());
+            put(out, ",\"grade\":");
+            putLong(out, row.getGrade());
+            put(out, ",\"name\":");
+            putJson(out, row.getName());
+            put(out, ",\"description\":");
+        }
+    }
+
+    /** Everything after the description, including the line break. */
+    private void encodeTail(ByteBuffer out, ResultData row) {
+        if (format == Format.CSV) {
+            out.put((byte) ',');
+            if (row.getCreatedDate() != null) {
+                putTimestamp(out, row.getCreatedDate());
+            }
+        } else {
+            put(out, ",\"created_date\":");
+            if (row.getCreatedDate() == null) {
+                put(out, "null");
+            } else {
+                out.put((byte) '"');
+                putTimestamp(out, row.getCreatedDate());
+                out.put((byte) '"');
+            }
+            out.put((byte) '}');
+        }
+        out.put((byte) '\n');
+    }
+
+    private static void put(ByteBuffer out, String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            out.put((byte) ascii.charAt(i));
+        }
+    }
+
+    private static void putLong(ByteBuffer out, long value) {
+        if (value == Long.MIN_VALUE) {
+            put(out, "-9223372036854775808");
+            return;
+        }
+        if (value < 0) {
+            out.put((byte) '-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.put((byte) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    private static void putPadded(ByteBuffer out, int value, int digits) {
+        for (int divisor = (int) Math.pow(10, digits - 1); divisor > 0; divisor /= 10) {
+            out.put((byte) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    /** {@code yyyy-MM-dd HH:mm:ss.SSS} in the JVM time zone, like {@code Timestamp.toString()}. */
+    private static void putTimestamp(ByteBuffer out, Timestamp timestamp) {
+        LocalDateTime time = timestamp.toLocalDateTime();
+        putPadded(out, time.getYear(), 4);
+        out.put((byte) '-');
+        putPadded(out, time.getMonthValue(), 2);
+        out.put((byte) '-');
+        putPadded(out, time.getDayOfMonth(), 2);
+        out.put((byte) ' ');
+        putPadded(out, time.getHour(), 2);
+        out.put((byte) ':');
+        putPadded(out, time.getMinute(), 2);
+        out.put((byte) ':');
+        putPadded(out, time.getSecond(), 2);
+        out.put((byte) '.');
+        putPadded(out, time.getNano() / 1_000_000, 3);
+    }
+
+    /** RFC 4180 field: quoted only when it contains a comma, quote or line break. */
+    private static void putCsv(ByteBuffer out, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quote) {
+            out.put((byte) '"');
+        }
+        for (int i = 0; i < value.length(); i++) {
+            i += putCsvChar(out, value.charAt(i), i + 1 < value.length() ? value.charAt(i + 1) : 0);
+        }
+        if (quote) {
+            out.put((byte) '"');
+        }
+    }
+
+    private static void putJson(ByteBuffer out, String value) {
+        if (value == null) {
+            put(out, "null");
+            return;
+        }
+        out.put((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            i += putJsonChar(out, value.charAt(i), i + 1 < value.length() ? value.charAt(i + 1) : 0);
+        }
+        out.put((byte) '"');
+    }
+
+    /**
+     * Encode {@code chars[from, to)} of a streamed value, escaped for the
+     * format but without the enclosing quotes.
+     */
+    private void putChars(ByteBuffer out, char[] chars, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char next = i + 1 < to ? chars[i + 1] : 0;
+            i += format == Format.CSV ? putCsvChar(out, chars[i], next) : putJsonChar(out, chars[i], next);
+        }
+    }
+
+    /** Returns the number of following chars consumed, like {@link #putUtf8(ByteBuffer, char, char)}. */
+    private static int putCsvChar(ByteBuffer out, char c, char next) {
+        if (c == '"') {
+            out.put((byte) '"');
+        }
+        return putUtf8(out, c, next);
+    }
+
+    /** Returns the number of following chars consumed, like {@link #putUtf8(ByteBuffer, char, char)}. */
+    private static int putJsonChar(ByteBuffer out, char c, char next) {
+        if (c == '"' || c == '\\') {
+            out.put((byte) '\\');
+            out.put((byte) c);
+        } else if (c == '\n') {
+            put(out, "\\n");
+        } else if (c == '\r') {
+            put(out, "\\r");
+        } else if (c == '\t') {
+            put(out, "\\t");
+        } else if (c < 0x20) {
+            put(out, "\\u00");
+            out.put(HEX[c >> 4]);
+            out.put(HEX[c & 0xF]);
+        } else {
+            return putUtf8(out, c, next);
+        }
+        return 0;
+    }
+
+    /**
+     * Encode {@code c} as UTF-8, together with {@code next} if they form a
+     * surrogate pair. Returns 1 if {@code next} was consumed, else 0.
+     */
+    private static int putUtf8(ByteBuffer out, char c, char next) {
+        if (c < 0x80) {
+            out.put((byte) c);
+        } else if (c < 0x800) {
+            out.put((byte) (0xC0 | (c >> 6)));
+            out.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c) && Character.isLowSurrogate(next)) {
+            int cp = Character.toCodePoint(c, next);
+            out.put((byte) (0xF0 | (cp >> 18)));
+            out.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+            out.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+            out.put((byte) (0x80 | (cp & 0x3F)));
+            return 1;
+        } else if (Character.isSurrogate(c)) {
+            out.put((byte) '?');
+        } else {
+            out.put((byte) (0xE0 | (c >> 12)));
+            out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            out.put((byte) (0x80 | (c & 0x3F)));
+        }
+        return 0;
+    }
+}
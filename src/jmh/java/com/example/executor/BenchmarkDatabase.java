@@ -0,0 +1,91 @@
+package com.example.executor;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Embedded H2 database in Oracle compatibility mode holding a synthetic
+ * {@code main_data} table, so benchmarks run the executor's real SQL without
+ * an Oracle instance.
+ * <p>
+ * Rows are generated in SQL from the row number alone, so every run sees the
+ * same data. Grades follow the default {@code query.grades} with a skew
+ * similar to production: grade 4 holds 40% of the rows, grade 13 only 5%.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    /** Grades present in the table, matching the default {@code query.grades}. */
+    static final int[] GRADES = {4, 5, 7, 11, 12, 13};
+
+    private final HikariDataSource dataSource;
+
+    private BenchmarkDatabase(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Create a named in-memory database with {@code rows} rows and a pool of
+     * {@code poolSize} connections.
+     */
+    static BenchmarkDatabase create(String name, long rows, int poolSize) throws SQLException {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:" + name + ";MODE=Oracle;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(poolSize);
+        HikariDataSource dataSource = new HikariDataSource(config);
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS main_data");
+            stmt.execute("""
+                CREATE TABLE main_data (
+                    id NUMBER(19) PRIMARY KEY,
+                    grade NUMBER(10) NOT NULL,
+                    name VARCHAR2(100),
+                    description VARCHAR2(4000),
+                    created_date TIMESTAMP
+                )
+                """);
+            stmt.execute("""
+                INSERT INTO main_data (id, grade, name, description, created_date)
+                SELECT X,
+                       CASE WHEN MOD(X, 20) < 8 THEN 4
+                            WHEN MOD(X, 20) < 12 THEN 5
+                            WHEN MOD(X, 20) < 15 THEN 7
+                            WHEN MOD(X, 20) < 17 THEN 11
+                            WHEN MOD(X, 20) < 19 THEN 12
+                            ELSE 13 END,
+                       'name-' || MOD(X * 7919, 5000),
+                       CASE WHEN MOD(X, 10) = 0 THEN NULL
+                            ELSE 'Description of record ' || X || ', batch ' || MOD(X, 977) END,
+                       DATEADD('SECOND', X, TIMESTAMP '2024-01-01 00:00:00')
+                FROM SYSTEM_RANGE(1, %d)
+                """.formatted(rows));
+            stmt.execute("CREATE INDEX main_data_grade_ix ON main_data (grade, created_date, id)");
+        } catch (SQLException e) {
+            dataSource.close();
+            throw e;
+        }
+        return new BenchmarkDatabase(dataSource);
+    }
+
+    HikariDataSource getDataSource() {
+        return dataSource;
+    }
+
+    @Override
+    public void close() {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        } catch (SQLException e) {
+            System.err.println("Could not shut down benchmark database: " + e.getMessage());
+        }
+        dataSource.close();
+    }
+}
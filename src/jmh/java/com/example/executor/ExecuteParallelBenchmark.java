@@ -0,0 +1,98 @@
+package com.example.executor;
+
+import com.example.model.ResultData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end {@code executeParallel()} against an embedded H2 database in
+ * Oracle compatibility mode, seeded once per fork with {@code rows} rows of
+ * {@code main_data}.
+ * <p>
+ * Everything except the data source comes from {@code application.properties}
+ * as in a normal run; {@code query.grades} must list the seeded grades
+ * {@link BenchmarkDatabase#GRADES} (the default) or be {@code auto}. H2 runs
+ * in-process, so the numbers reflect the executor's own overhead and
+ * scheduling rather than Oracle's, and compare builds on the same machine only.
+ * Partition stats and run metrics go to a temporary directory per trial, so
+ * the trial starts without history and leaves the files of normal runs alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class ExecuteParallelBenchmark {
+
+    @Param({"2000000"})
+    public long rows;
+
+    @Param({"FIXED", "VIRTUAL"})
+    public ParallelQueryExecutor.ExecutionMode mode;
+
+    @Param({"none", "id-range", "hash"})
+    public String partitioner;
+
+    @Param({"10"})
+    public int poolSize;
+
+    private BenchmarkDatabase database;
+    private ParallelQueryExecutor executor;
+    private Path workDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        database = BenchmarkDatabase.create("executor", rows, poolSize);
+        int targetRows = (int) Math.max(rows / 32, 1);
+        Partitioner split = switch (partitioner) {
+            case "none" -> new Partitioner.WholeGrade();
+            case "id-range" -> new Partitioner.IdRange(targetRows, 16);
+            case "hash" -> new Partitioner.HashBucket(targetRows, 16);
+            default -> throw new IllegalArgumentException("Unknown partitioner: " + partitioner);
+        };
+        workDir = Files.createTempDirectory("pqe-bench-");
+        executor = new ParallelQueryExecutor(database.getDataSource(), split, mode,
+            workDir.resolve("partition-stats.properties"), workDir.resolve("metrics"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executor.close();
+        database.close();
+        try (Stream<Path> files = Files.walk(workDir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<ResultData> executeParallel() throws Exception {
+        List<ResultData> results = executor.executeParallel();
+        if (results.size() != rows) {
+            throw new IllegalStateException("Expected " + rows + " rows, got " + results.size());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.executor;
+
+import com.example.model.ResultData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Cost of collecting already mapped rows from concurrent partitions, the way
+ * the executor's sinks receive them: one task per partition on a fixed pool,
+ * each handing its rows to the sink for its partition index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ResultCollectionBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"8"})
+    public int partitions;
+
+    /** Heap budget of the spilling store; the default never spills. */
+    @Param({"1024"})
+    public int spillBudgetMb;
+
+    private ResultData[][] slices;
+    private ExecutorService pool;
+    private Path spillDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        slices = new ResultData[partitions][];
+        int perPartition = rows / partitions;
+        long created = Timestamp.valueOf("2024-01-01 00:00:00").getTime();
+        for (int p = 0; p < partitions; p++) {
+            slices[p] = new ResultData[perPartition];
+            for (int i = 0; i < perPartition; i++) {
+                long id = (long) p * perPartition + i + 1;
+                ResultData row = new ResultData();
+                row.setId(id);
+                row.setGrade(BenchmarkDatabase.GRADES[p % BenchmarkDatabase.GRADES.length]);
+                row.setName("name-" + (id * 7919 % 5000));
+                row.setDescription(id % 10 == 0 ? null : "Description of record " + id + ", batch " + id % 977);
+                row.setCreatedDate(new Timestamp(created + id * 1000));
+                slices[p][i] = row;
+            }
+        }
+        pool = Executors.newFixedThreadPool(partitions);
+        spillDir = Files.createTempDirectory("pqe-bench-");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        pool.shutdownNow();
+        Files.deleteIfExists(spillDir);
+    }
+
+    /** What {@code executeParallel()} does: a list per partition, concatenated at the end. */
+    @Benchmark
+    public List<ResultData> perPartitionLists() throws Exception {
+        List<List<ResultData>> perPartition = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            perPartition.add(new ArrayList<>());
+        }
+        fill(index -> perPartition.get(index)::add);
+        List<ResultData> all = new ArrayList<>(rows);
+        for (List<ResultData> list : perPartition) {
+            all.addAll(list);
+        }
+        return all;
+    }
+
+    /** One list shared by all partitions behind a lock. */
+    @Benchmark
+    public List<ResultData> sharedSynchronizedList() throws Exception {
+        List<ResultData> all = Collections.synchronizedList(new ArrayList<>());
+        fill(index -> all::add);
+        return all;
+    }
+
+    /** What {@code executeColumnar()} does: dictionary-encoded column buffers per partition. */
+    @Benchmark
+    public ColumnarResults columnar() throws Exception {
+        List<ColumnarResultBuffer> buffers = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            buffers.add(new ColumnarResultBuffer());
+        }
+        fill(buffers::get);
+        return new ColumnarResults(buffers);
+    }
+
+    /** What {@code executeSpilling()} does, including closing the store. */
+    @Benchmark
+    public long spilling() throws Exception {
+        try (SpillingResultStore store = new SpillingResultStore(spillBudgetMb * 1024L * 1024L, spillDir)) {
+            List<ResultSink> sinks = new ArrayList<>(partitions);
+            for (int p = 0; p < partitions; p++) {
+                sinks.add(store.newPartition(String.valueOf(p)));
+            }
+            fill(sinks::get);
+            return store.size();
+        }
+    }
+
+    private void fill(IntFunction<ResultSink> sinks) throws Exception {
+        List<Future<?>> futures = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            ResultData[] slice = slices[p];
+            ResultSink sink = sinks.apply(p);
+            futures.add(pool.submit(() -> {
+                for (ResultData row : slice) {
+                    sink.accept(row);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+}
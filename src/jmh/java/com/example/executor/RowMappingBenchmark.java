@@ -0,0 +1,130 @@
+package com.example.executor;
+
+import com.example.model.ResultData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning {@code main_data} rows into Java objects.
+ * <p>
+ * The rows are read from H2 once and replayed from a {@link CachedRowSet}, so
+ * the numbers contain only the getter calls and allocation, not the driver's
+ * network or decoding work. Compares getters by column name (the original
+ * hand-written mapper) with getters by index, the metadata-driven
+ * {@link RowMapper} the executor uses, and {@code Timestamp} objects with
+ * epoch millis in primitive columns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RowMappingBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private BenchmarkDatabase database;
+    private CachedRowSet rowSet;
+
+    @Setup(Level.Trial)
+    public void load() throws SQLException {
+        database = BenchmarkDatabase.create("mapping", rows, 1);
+        rowSet = RowSetProvider.newFactory().createCachedRowSet();
+        try (Connection conn = database.getDataSource().getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT id, grade, name, description, created_date FROM main_data ORDER BY id")) {
+            rowSet.populate(rs);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        rowSet.close();
+        database.close();
+    }
+
+    @Benchmark
+    public List<ResultData> byName() throws SQLException {
+        List<ResultData> result = new ArrayList<>(rows);
+        rowSet.beforeFirst();
+        while (rowSet.next()) {
+            ResultData data = new ResultData();
+            data.setId(rowSet.getLong("id"));
+            data.setGrade(rowSet.getInt("grade"));
+            data.setName(rowSet.getString("name"));
+            data.setDescription(rowSet.getString("description"));
+            data.setCreatedDate(rowSet.getTimestamp("created_date"));
+            result.add(data);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<ResultData> byIndex() throws SQLException {
+        List<ResultData> result = new ArrayList<>(rows);
+        rowSet.beforeFirst();
+        while (rowSet.next()) {
+            ResultData data = new ResultData();
+            data.setId(rowSet.getLong(1));
+            data.setGrade(rowSet.getInt(2));
+            data.setName(rowSet.getString(3));
+            data.setDescription(rowSet.getString(4));
+            data.setCreatedDate(rowSet.getTimestamp(5));
+            result.add(data);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<ResultData> rowMapper() throws SQLException {
+        List<ResultData> result = new ArrayList<>(rows);
+        rowSet.beforeFirst();
+        RowMapper<ResultData> mapper = RowMapper.forType(ResultData.class, rowSet.getMetaData());
+        while (rowSet.next()) {
+            result.add(mapper.map(rowSet));
+        }
+        return result;
+    }
+
+    /**
+     * Getters by index into primitive columns, keeping {@code created_date}
+     * as epoch millis. The driver still creates a {@code Timestamp} per row,
+     * but it dies young instead of being retained with the result.
+     */
+    @Benchmark
+    public ColumnarResultBuffer byIndexEpochMillis() throws SQLException {
+        ColumnarResultBuffer result = new ColumnarResultBuffer(rows);
+        rowSet.beforeFirst();
+        while (rowSet.next()) {
+            Timestamp created = rowSet.getTimestamp(5);
+            result.add(rowSet.getLong(1), rowSet.getInt(2), rowSet.getString(3), rowSet.getString(4),
+                created != null ? created.getTime() : ColumnarResultBuffer.NULL_TIME);
+        }
+        return result;
+    }
+}